@@ -1,6 +1,7 @@
 package bcu.cmp5332.bookingsystem.commands;
 
 import bcu.cmp5332.bookingsystem.data.BookingDataManager;
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Booking;
 import bcu.cmp5332.bookingsystem.model.Customer;
@@ -60,18 +61,34 @@ public class AddBooking implements Command {
         }
 
         // Check if flights have available seats
-        if (outboundFlight.getPassengers().size() >= outboundFlight.getCapacity()) {
+        if (outboundFlight.getAvailableSeats() <= 0) {
             throw new FlightBookingSystemException("Outbound flight #" + outboundFlightId + " is fully booked.");
         }
-        if (returnFlight != null && returnFlight.getPassengers().size() >= returnFlight.getCapacity()) {
+        if (returnFlight != null && returnFlight.getAvailableSeats() <= 0) {
             throw new FlightBookingSystemException("Return flight #" + returnFlightId + " is fully booked.");
         }
 
         // Create a new booking with outbound and return flight
         LocalDate bookingDate = flightBookingSystem.getSystemDate();
-        Booking booking = new Booking(customer, outboundFlight, returnFlight, bookingDate);
+        Booking booking = new Booking(flightBookingSystem.nextBookingId(), customer, outboundFlight, returnFlight,
+                bookingDate);
 
-        // Add booking to customer
+        // Record the booking in the journal before applying it, once the customer and flights are on disk
+        try {
+            if (returnFlight != null) {
+                FlightBookingSystemData.storeReferencedChanges(flightBookingSystem, customerId, outboundFlightId,
+                        returnFlightId);
+            } else {
+                FlightBookingSystemData.storeReferencedChanges(flightBookingSystem, customerId, outboundFlightId);
+            }
+            BookingDataManager bookingDataManager = new BookingDataManager();
+            bookingDataManager.journalBooking(booking);
+        } catch (IOException ex) {
+            throw new FlightBookingSystemException("Failed to save booking data: " + ex.getMessage());
+        }
+
+        // Add booking to the index and the customer
+        flightBookingSystem.addBooking(booking);
         customer.addBooking(booking);
 
         // Add customer to flight passenger lists
@@ -80,16 +97,8 @@ public class AddBooking implements Command {
             returnFlight.addPassenger(customer);
         }
 
-        // Save booking data
-        try {
-            BookingDataManager bookingDataManager = new BookingDataManager();
-            bookingDataManager.storeData(flightBookingSystem);
-        } catch (IOException ex) {
-            throw new FlightBookingSystemException("Failed to save booking data: " + ex.getMessage());
-        }
-
         // Print confirmation in console
-        System.out.println("Booking added successfully.");
+        System.out.println("Booking #" + booking.getId() + " added successfully.");
         System.out.println("Customer: " + customer.getName());
         System.out.println("Outbound Flight: " + outboundFlight.getFlightNumber() + 
                            " from " + outboundFlight.getOrigin() + " to " + outboundFlight.getDestination());
@@ -104,7 +113,7 @@ public class AddBooking implements Command {
         }
 
         // Display confirmation in GUI
-        String message = "Booking added successfully!\n\n" +
+        String message = "Booking #" + booking.getId() + " added successfully!\n\n" +
                          "Customer: " + customer.getName() + "\n" +
                          "Outbound Flight: " + outboundFlight.getFlightNumber() + " (" +
                          outboundFlight.getOrigin() + " → " + outboundFlight.getDestination() + ")\n" +
@@ -83,7 +83,7 @@ public class AddBookingWindow extends JFrame implements ActionListener {
             addBooking.execute(mw.getFlightBookingSystem());
 
             // Refresh the view with the list of flights
-            mw.displayFlights(mw.getFlightBookingSystem().getFlights());
+            mw.displayFlights();
 
             // Hide (close) the AddBookingWindow
             this.setVisible(false);
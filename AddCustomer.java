@@ -1,15 +1,15 @@
 package bcu.cmp5332.bookingsystem.commands;
 
-import java.io.IOException;
 import javax.swing.JOptionPane;
-import bcu.cmp5332.bookingsystem.data.CustomerDataManager;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
+import java.util.List;
+
 /**
  * The {@code AddCustomer} command allows a new customer to be added to the flight booking system.
- * A unique ID is generated for the new customer, and their details are saved.
+ * A unique ID is generated for the new customer, and their details are saved in the background.
  */
 public class AddCustomer implements Command {
 
@@ -32,25 +32,30 @@ public class AddCustomer implements Command {
 
     /**
      * Executes the add customer command.
-     * A new customer is created, assigned a unique ID, added to the system, and saved to a file.
+     * A new customer is created, assigned a unique ID and added to the system, which saves it in the background.
      * A confirmation message is displayed in both the console and GUI.
      *
      * @param flightBookingSystem The flight booking system instance.
-     * @throws FlightBookingSystemException If an error occurs while adding or saving the customer.
+     * @throws FlightBookingSystemException If another customer has the same phone number or email address.
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        // Generate a unique ID for the new customer
-        int maxId = 0;
-        if (!flightBookingSystem.getCustomers().isEmpty()) {
-            // Find the maximum ID among existing customers
-            for (Customer customer : flightBookingSystem.getCustomers()) {
-                if (customer.getId() > maxId) {
-                    maxId = customer.getId();
-                }
+        // Reject a customer who is already registered, using the phone and email indexes
+        List<Customer> samePhone = flightBookingSystem.findCustomersByPhone(phone);
+        if (!samePhone.isEmpty()) {
+            throw new FlightBookingSystemException("Customer #" + samePhone.get(0).getId()
+                    + " already has the phone number " + phone + ".");
+        }
+        if (email != null && !email.trim().isEmpty()) {
+            List<Customer> sameEmail = flightBookingSystem.findCustomersByEmail(email);
+            if (!sameEmail.isEmpty()) {
+                throw new FlightBookingSystemException("Customer #" + sameEmail.get(0).getId()
+                        + " already has the email address " + email + ".");
             }
         }
-        int newId = maxId + 1;
+
+        // Generate a unique ID for the new customer
+        int newId = flightBookingSystem.nextCustomerId();
 
         // Create a new Customer object
         Customer customer = new Customer(newId, name, phone, email);
@@ -58,14 +63,6 @@ public class AddCustomer implements Command {
         // Add the customer to the FlightBookingSystem
         flightBookingSystem.addCustomer(customer);
 
-        // Save the updated customer data to customers.txt
-        try {
-            CustomerDataManager customerDataManager = new CustomerDataManager();
-            customerDataManager.storeData(flightBookingSystem);
-        } catch (IOException ex) {
-            throw new FlightBookingSystemException("Failed to save customer data: " + ex.getMessage());
-        }
-
         // Print success message in console
         System.out.println("Customer #" + newId + " added.");
         System.out.println("Customer Details:");
@@ -1,17 +1,15 @@
 package bcu.cmp5332.bookingsystem.commands;
 
-import bcu.cmp5332.bookingsystem.data.FlightDataManager;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
-import java.io.IOException;
 import java.time.LocalDate;
 import javax.swing.JOptionPane;
 
 /**
  * The {@code AddFlight} command adds a new flight to the flight booking system.
- * The new flight is assigned an ID, stored in the system, and saved to a file.
+ * The new flight is assigned an ID, stored in the system, and saved in the background.
  */
 public class AddFlight implements Command {
 
@@ -43,33 +41,18 @@ public class AddFlight implements Command {
 
     /**
      * Executes the add flight command.
-     * A new flight is created and added to the system, then saved to a file.
+     * A new flight is created and added to the system, which saves it in the background.
      * A confirmation message is displayed in both the console and GUI.
      *
      * @param flightBookingSystem The flight booking system instance.
-     * @throws FlightBookingSystemException If an error occurs while adding or saving the flight.
+     * @throws FlightBookingSystemException If an error occurs while adding the flight.
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        // Determine the next available flight ID
-        int maxId = 0;
-        if (!flightBookingSystem.getFlights().isEmpty()) {
-            int lastIndex = flightBookingSystem.getFlights().size() - 1;
-            maxId = flightBookingSystem.getFlights().get(lastIndex).getId();
-        }
-
-        // Create and add the new flight
-        Flight flight = new Flight(++maxId, flightNumber, origin, destination, departureDate, capacity, price);
+        // Create and add the new flight with the next flight ID
+        Flight flight = new Flight(flightBookingSystem.nextFlightId(), flightNumber, origin, destination, departureDate, capacity, price);
         flightBookingSystem.addFlight(flight);
 
-        // Save the updated flight data to flights.txt
-        try {
-            FlightDataManager flightDataManager = new FlightDataManager();
-            flightDataManager.storeData(flightBookingSystem);
-        } catch (IOException ex) {
-            throw new FlightBookingSystemException("Failed to save flight data: " + ex.getMessage());
-        }
-
         // Display the flight added message in console
         System.out.println("Flight #" + flight.getId() + " added.");
         System.out.println("Origin: " + flight.getOrigin());
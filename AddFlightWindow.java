@@ -109,7 +109,7 @@ public class AddFlightWindow extends JFrame implements ActionListener {
             addFlight.execute(mw.getFlightBookingSystem());
 
             // Refresh the view with the list of flights
-            mw.displayFlights(mw.getFlightBookingSystem().getFlights()); // Pass the full list of flights
+            mw.displayFlights(); // Pass the full list of flights
 
             // Hide (close) the AddFlightWindow
             this.setVisible(false);
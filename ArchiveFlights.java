@@ -0,0 +1,35 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.data.FlightArchive;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.io.IOException;
+
+/**
+ * The {@code ArchiveFlights} command moves departed flights, and the bookings that
+ * only use them, out of the flight booking system into the archive.
+ * Archived flights can still be shown with {@code showflight}.
+ */
+public class ArchiveFlights implements Command {
+
+    /**
+     * Executes the archive command.
+     * Every flight that departed before the system date and has no booking on an
+     * upcoming flight is archived, and the number archived is printed.
+     *
+     * @param flightBookingSystem The flight booking system instance.
+     * @throws FlightBookingSystemException If the flights cannot be archived.
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        int archived;
+        try {
+            archived = new FlightArchive().archiveDeparted(flightBookingSystem);
+        } catch (IOException ex) {
+            throw new FlightBookingSystemException("Failed to archive flights: " + ex.getMessage());
+        }
+
+        System.out.println(archived + " departed flight(s) archived.");
+    }
+}
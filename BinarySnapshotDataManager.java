@@ -0,0 +1,297 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages a binary snapshot of the whole flight booking system that loads much
+ * faster than the "::" separated text files.
+ * <p>
+ * Every string is stored once in a dictionary and referred to by its index, dates
+ * are stored as epoch days and all other values have a fixed width, so a snapshot
+ * is read through a {@code MappedByteBuffer} without any decimal parsing. The file
+ * is laid out as follows, with every number in big-endian order:
+ * <pre>
+ * header      magic, version, length and modification time of each text file,
+ *             string, flight, customer and booking counts
+ * dictionary  per string: byte length, UTF-8 bytes
+ * flights     id, flight number, origin, destination, departure day, capacity, price
+ * customers   id, name, phone, email
+ * bookings    id, customer id, outbound flight id, return flight id, booking day
+ * </pre>
+ * The header records the text files the snapshot was taken alongside, so a snapshot
+ * left behind after those files changed is recognised as out of date. The booking
+ * journal is not part of the snapshot and is replayed on top of it.
+ */
+public class BinarySnapshotDataManager implements DataManager {
+
+    private final String RESOURCE = DataManager.DATA_DIRECTORY + "/snapshot.bin";
+    private final String[] SOURCES = {
+        DataManager.DATA_DIRECTORY + "/flights.txt",
+        DataManager.DATA_DIRECTORY + "/flights.dat",
+        DataManager.DATA_DIRECTORY + "/customers.txt",
+        DataManager.DATA_DIRECTORY + "/bookings.txt"
+    };
+
+    private static final int MAGIC = 0x46425342; // "FBSB"
+    private static final int VERSION = 2; // Version 1 had no booking IDs
+    private static final int NO_FLIGHT = Integer.MIN_VALUE; // Return flight ID of a one-way booking
+
+    private static final int FLIGHT_RECORD_SIZE = 32;
+    private static final int CUSTOMER_RECORD_SIZE = 16;
+    private static final int BOOKING_RECORD_SIZE = 20;
+
+    /**
+     * Loads flights, customers and bookings from the snapshot into the flight
+     * booking system. The booking journal is not replayed.
+     *
+     * @param fbs The flight booking system to populate.
+     * @throws IOException If an error occurs while reading the snapshot.
+     * @throws FlightBookingSystemException If the snapshot is invalid or has an unsupported version.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        try (FileChannel channel = FileChannel.open(Paths.get(RESOURCE), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readHeader(in);
+
+            int stringCount = in.getInt();
+            int flightCount = in.getInt();
+            int customerCount = in.getInt();
+            int bookingCount = in.getInt();
+
+            String[] strings = new String[stringCount];
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < stringCount; i++) {
+                int length = in.getInt();
+                if (scratch.length < length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                in.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            for (int i = 0; i < flightCount; i++) {
+                int id = in.getInt();
+                String flightNumber = strings[in.getInt()];
+                String origin = strings[in.getInt()];
+                String destination = strings[in.getInt()];
+                LocalDate departureDate = LocalDate.ofEpochDay(in.getInt());
+                int capacity = in.getInt();
+                double price = in.getDouble();
+                fbs.addFlight(new Flight(id, flightNumber, origin, destination, departureDate, capacity, price));
+            }
+
+            List<Customer> customers = new ArrayList<>(customerCount);
+            for (int i = 0; i < customerCount; i++) {
+                int id = in.getInt();
+                customers.add(new Customer(id, strings[in.getInt()], strings[in.getInt()], strings[in.getInt()]));
+            }
+            fbs.addLoadedCustomers(customers);
+
+            for (int i = 0; i < bookingCount; i++) {
+                int bookingId = in.getInt();
+                int customerId = in.getInt();
+                int outboundFlightId = in.getInt();
+                int returnFlightId = in.getInt();
+                LocalDate bookingDate = LocalDate.ofEpochDay(in.getInt());
+                BookingDataManager.linkBooking(fbs, bookingId, customerId, outboundFlightId,
+                        returnFlightId == NO_FLIGHT ? null : returnFlightId, bookingDate, i + 1);
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException ex) {
+            throw new FlightBookingSystemException("Snapshot " + RESOURCE + " is truncated or corrupt.");
+        }
+    }
+
+    /**
+     * Writes the whole flight booking system to the snapshot. The snapshot is written
+     * beside the original and then moved into place. The text files should be stored
+     * first, since the snapshot records their current state.
+     *
+     * @param fbs The flight booking system containing the data to be stored.
+     * @throws IOException If an error occurs while writing the snapshot.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        List<Flight> flights = fbs.getFlights();
+        List<Customer> customers = fbs.getCustomers();
+        List<Booking> bookings = new ArrayList<>();
+        for (Customer customer : customers) {
+            bookings.addAll(customer.getBookings());
+        }
+
+        // Give every distinct string an index, in the order it is first used
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Flight flight : flights) {
+            intern(flight.getFlightNumber(), dictionary, strings);
+            intern(flight.getOrigin(), dictionary, strings);
+            intern(flight.getDestination(), dictionary, strings);
+        }
+        for (Customer customer : customers) {
+            intern(customer.getName(), dictionary, strings);
+            intern(customer.getPhone(), dictionary, strings);
+            intern(customer.getEmail(), dictionary, strings);
+        }
+
+        Path target = Paths.get(RESOURCE);
+        Path temp = Paths.get(RESOURCE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            for (String source : SOURCES) {
+                long[] state = sourceState(source);
+                out.putLong(state[0]);
+                out.putLong(state[1]);
+            }
+            out.putInt(strings.size());
+            out.putInt(flights.size());
+            out.putInt(customers.size());
+            out.putInt(bookings.size());
+
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out = ensureCapacity(channel, out, 4 + bytes.length);
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+
+            for (Flight flight : flights) {
+                out = ensureCapacity(channel, out, FLIGHT_RECORD_SIZE);
+                out.putInt(flight.getId());
+                out.putInt(dictionary.get(flight.getFlightNumber()));
+                out.putInt(dictionary.get(flight.getOrigin()));
+                out.putInt(dictionary.get(flight.getDestination()));
+                out.putInt((int) flight.getDepartureDate().toEpochDay());
+                out.putInt(flight.getCapacity());
+                out.putDouble(flight.getPrice());
+            }
+
+            for (Customer customer : customers) {
+                out = ensureCapacity(channel, out, CUSTOMER_RECORD_SIZE);
+                out.putInt(customer.getId());
+                out.putInt(dictionary.get(customer.getName()));
+                out.putInt(dictionary.get(customer.getPhone()));
+                out.putInt(dictionary.get(customer.getEmail()));
+            }
+
+            for (Booking booking : bookings) {
+                out = ensureCapacity(channel, out, BOOKING_RECORD_SIZE);
+                out.putInt(booking.getId());
+                out.putInt(booking.getCustomer().getId());
+                out.putInt(booking.getOutboundFlight().getId());
+                out.putInt(booking.getReturnFlight() != null ? booking.getReturnFlight().getId() : NO_FLIGHT);
+                out.putInt((int) booking.getBookingDate().toEpochDay());
+            }
+
+            flush(channel, out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks whether the snapshot exists, has a supported version and was taken
+     * alongside the text files as they are now.
+     *
+     * @return True if loading the snapshot gives the same data as loading the text files.
+     * @throws IOException If the files cannot be inspected.
+     */
+    public boolean isCurrent() throws IOException {
+        Path path = Paths.get(RESOURCE);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8 + SOURCES.length * 16);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < header.capacity() || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return false;
+            }
+            for (String source : SOURCES) {
+                long[] state = sourceState(source);
+                if (header.getLong() != state[0] || header.getLong() != state[1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checks the magic number and version, and skips over the source file states.
+     */
+    private void readHeader(ByteBuffer in) throws FlightBookingSystemException {
+        if (in.getInt() != MAGIC) {
+            throw new FlightBookingSystemException(RESOURCE + " is not a flight booking system snapshot.");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new FlightBookingSystemException("Unsupported snapshot version " + version + " in " + RESOURCE);
+        }
+        in.position(in.position() + SOURCES.length * 16);
+    }
+
+    /**
+     * Gets the length and modification time of a text file, or -1 for both if it is missing.
+     */
+    private static long[] sourceState(String source) throws IOException {
+        Path path = Paths.get(source);
+        if (!Files.exists(path)) {
+            return new long[]{-1, -1};
+        }
+        return new long[]{Files.size(path), Files.getLastModifiedTime(path).to(TimeUnit.MICROSECONDS)};
+    }
+
+    private static void intern(String value, Map<String, Integer> dictionary, List<String> strings) {
+        if (!dictionary.containsKey(value)) {
+            dictionary.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    /**
+     * Flushes the buffer when it cannot hold the next value, and grows it when the
+     * value is larger than the whole buffer.
+     */
+    private static ByteBuffer ensureCapacity(FileChannel channel, ByteBuffer out, int needed) throws IOException {
+        if (out.remaining() >= needed) {
+            return out;
+        }
+        flush(channel, out);
+        return needed > out.capacity() ? ByteBuffer.allocate(needed) : out;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
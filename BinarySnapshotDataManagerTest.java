@@ -0,0 +1,74 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotDataManagerTest {
+
+    static {
+        BookingDataManagerTest.DIRECTORY.getClass(); // Points the data classes at the test directory
+    }
+
+    private final BinarySnapshotDataManager manager = new BinarySnapshotDataManager();
+    private FlightBookingSystem fbs;
+
+    @BeforeEach
+    void setUp() throws IOException, FlightBookingSystemException {
+        BookingDataManagerTest.clearDirectory();
+        fbs = new FlightBookingSystem();
+        Flight outbound = new Flight(1, "FL100", "London", "Paris", LocalDate.of(2030, 1, 10), 10, 100.0);
+        Flight inbound = new Flight(2, "FL200", "Paris", "London", LocalDate.of(2030, 1, 20), 10, 110.0);
+        fbs.addFlight(outbound);
+        fbs.addFlight(inbound);
+        Customer customer = new Customer(3, "Roshan", "111111111", "roshan@example.com");
+        fbs.addCustomer(customer);
+        fbs.addCustomer(new Customer(4, "Sudip", "999999999", ""));
+
+        Booking booking = new Booking(12, customer, outbound, inbound, LocalDate.of(2029, 12, 1));
+        fbs.addBooking(booking);
+        customer.addBooking(booking);
+        outbound.addPassenger(customer);
+        inbound.addPassenger(customer);
+    }
+
+    @Test
+    void testStoreAndLoadSnapshot() throws IOException, FlightBookingSystemException {
+        FlightBookingSystemData.storeText(fbs);
+        manager.storeData(fbs);
+        assertTrue(manager.isCurrent());
+
+        FlightBookingSystem loaded = new FlightBookingSystem();
+        manager.loadData(loaded);
+        assertEquals(2, loaded.getFlightCount());
+        assertEquals(2, loaded.getCustomerCount());
+        assertEquals("", loaded.getCustomerByID(4).getEmail());
+
+        Booking booking = loaded.getBookingByID(12);
+        assertEquals(3, booking.getCustomer().getId());
+        assertEquals(1, booking.getOutboundFlight().getId());
+        assertEquals(2, booking.getReturnFlight().getId());
+        assertEquals(LocalDate.of(2029, 12, 1), booking.getBookingDate());
+        assertEquals(1, loaded.getFlightByID(2).getPassengerCount());
+        assertEquals(1, loaded.getCustomerByID(3).getBookingCount());
+    }
+
+    @Test
+    void testSnapshotIsStaleOnceTextFilesChange() throws IOException, FlightBookingSystemException {
+        FlightBookingSystemData.storeText(fbs);
+        manager.storeData(fbs);
+
+        fbs.addCustomer(new Customer(5, "Anita", "555555555", "anita@example.com"));
+        FlightBookingSystemData.storeText(fbs);
+        assertFalse(manager.isCurrent());
+    }
+}
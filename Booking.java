@@ -5,9 +5,11 @@ import java.time.LocalDate;
 /**
  * Represents a flight booking for a customer. A booking consists of an outbound flight, 
  * an optional return flight, a booking date, and associated fees.
+ * Each booking in the system has a unique ID that stays the same when it is stored.
  */
 public class Booking {
 
+    private int id; // 0 until the booking is added to the system
     private Customer customer;
     private Flight outboundFlight;
     private Flight returnFlight;
@@ -25,6 +27,21 @@ public class Booking {
      * @param bookingDate The date when the booking was made.
      */
     public Booking(Customer customer, Flight outboundFlight, Flight returnFlight, LocalDate bookingDate) {
+        this(0, customer, outboundFlight, returnFlight, bookingDate);
+    }
+
+    /**
+     * Creates a new booking with the given ID, customer, flights, and booking date.
+     * Default fees for cancellation and rebooking are set automatically.
+     *
+     * @param id The unique booking ID, or 0 to have one allocated when it is added to the system.
+     * @param customer The customer who made the booking.
+     * @param outboundFlight The outbound flight associated with this booking.
+     * @param returnFlight The return flight (if applicable), otherwise null.
+     * @param bookingDate The date when the booking was made.
+     */
+    public Booking(int id, Customer customer, Flight outboundFlight, Flight returnFlight, LocalDate bookingDate) {
+        this.id = id;
         this.customer = customer;
         this.outboundFlight = outboundFlight;
         this.returnFlight = returnFlight;
@@ -33,6 +50,24 @@ public class Booking {
         this.rebookFee = 30.0; // Default rebooking fee
     }
 
+    /**
+     * Gets the unique ID of the booking.
+     *
+     * @return The booking ID, or 0 if it has not been added to the system yet.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the unique ID of the booking.
+     *
+     * @param id The new booking ID.
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Sets the customer for this booking.
      *
@@ -143,6 +178,7 @@ public class Booking {
      */
     public String getDetails() {
         String details = "Booking Details:\n" +
+                         "Booking ID: " + id + "\n" +
                          "Customer: " + customer.getName() + "\n" +
                          "Outbound Flight: " + outboundFlight.getFlightNumber() + 
                          " (" + outboundFlight.getOrigin() + " → " + outboundFlight.getDestination() + ")\n" +
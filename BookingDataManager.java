@@ -9,23 +9,52 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * Manages the loading and storing of booking data from a file.
- * The data is stored in a text file with values separated by "::".
+ * The data is stored in a text file with values separated by "::", ending with
+ * the booking ID. Bookings stored before they had IDs are given new ones on load.
+ * The highest ID ever allocated is kept in a sequence file beside it, so the IDs
+ * of cancelled bookings are not handed out again after a restart.
+ * Individual booking changes are appended to a {@link BookingJournal} rather than
+ * rewriting the whole file, and are folded back in the next time it is stored.
  */
 public class BookingDataManager implements DataManager {
 
-    private final String RESOURCE = "./resources/data/bookings.txt";
+    private final String RESOURCE = DataManager.DATA_DIRECTORY + "/bookings.txt";
+    private final String JOURNAL = DataManager.DATA_DIRECTORY + "/bookings.journal";
+    private final String CHECKPOINT_JOURNAL = DataManager.DATA_DIRECTORY + "/bookings.journal.checkpoint";
+    private final String REJECTED = DataManager.DATA_DIRECTORY + "/bookings.journal.rejected";
+    private final String STAGED = DataManager.DATA_DIRECTORY + "/bookings.txt.checkpoint";
+    private final SequenceFile sequence = new SequenceFile(DataManager.DATA_DIRECTORY + "/bookings.seq", "booking");
     private static final String SEPARATOR = "::";
 
+    // Journal record types
+    private static final String ADD = "ADD";
+    private static final String CANCEL = "CANCEL";
+    private static final String REBOOK = "REBOOK";
+
+    // Held by anything that rewrites the bookings file so snapshots are never interleaved
+    static final Object SNAPSHOT_LOCK = new Object();
+
+    private final BookingJournal journal = new BookingJournal(JOURNAL, REJECTED);
+    private final BookingJournal checkpointJournal = new BookingJournal(CHECKPOINT_JOURNAL, REJECTED);
+
     /**
      * Loads booking data from a file and populates the flight booking system.
      * This method reads each line from the file, parses the booking details, 
-     * and links them to customers and flights.
+     * and links them to customers and flights. Any booking changes recorded in
+     * the journal since the file was last written are then replayed on top.
      *
      * @param fbs The flight booking system to populate.
      * @throws IOException If an error occurs while reading the file.
@@ -33,6 +62,70 @@ public class BookingDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        loadSnapshot(fbs);
+        replayJournals(fbs); // Anything set aside stays in the rejected-records file
+    }
+
+    /**
+     * A booking read from the bookings file that has not yet been linked to its
+     * customer and flights.
+     */
+    static final class BookingRecord {
+
+        private final int bookingId;
+        private final int customerId;
+        private final int outboundFlightId;
+        private final Integer returnFlightId;
+        private final LocalDate bookingDate;
+        private final int lineNumber;
+
+        private BookingRecord(int bookingId, int customerId, int outboundFlightId, Integer returnFlightId,
+                LocalDate bookingDate, int lineNumber) {
+            this.bookingId = bookingId;
+            this.customerId = customerId;
+            this.outboundFlightId = outboundFlightId;
+            this.returnFlightId = returnFlightId;
+            this.bookingDate = bookingDate;
+            this.lineNumber = lineNumber;
+        }
+    }
+
+    /**
+     * Loads the bookings file without replaying the journal.
+     */
+    void loadSnapshot(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        linkSnapshot(fbs, parseSnapshot());
+    }
+
+    /**
+     * Links parsed bookings to their customers and flights, in file order.
+     * The customers and flights must already be loaded.
+     */
+    void linkSnapshot(FlightBookingSystem fbs, List<BookingRecord> records) throws FlightBookingSystemException {
+        for (BookingRecord record : records) {
+            linkBooking(fbs, record.bookingId, record.customerId, record.outboundFlightId, record.returnFlightId,
+                    record.bookingDate, record.lineNumber);
+        }
+    }
+
+    /**
+     * Replays booking changes made since the bookings file was last written,
+     * starting with any left behind by an unfinished checkpoint.
+     *
+     * @return A message for each journal record that was set aside.
+     */
+    List<String> replayJournals(FlightBookingSystem fbs) throws IOException {
+        List<String> rejects = new ArrayList<>(replayCheckpointJournal(fbs));
+        rejects.addAll(journal.replay((properties, line_idx) -> applyJournalRecord(fbs, properties, line_idx)));
+        return rejects;
+    }
+
+    /**
+     * Reads the bookings file into records without touching the flight booking
+     * system, so it can run while customers and flights are still being loaded.
+     */
+    List<BookingRecord> parseSnapshot() throws IOException, FlightBookingSystemException {
+        List<BookingRecord> records = new ArrayList<>();
         try (Scanner sc = new Scanner(new File(RESOURCE))) {
             int line_idx = 1;
             while (sc.hasNextLine()) {
@@ -50,32 +143,10 @@ public class BookingDataManager implements DataManager {
                     int customerId = Integer.parseInt(properties[0]);
                     int outboundFlightId = Integer.parseInt(properties[1]);
                     LocalDate bookingDate = LocalDate.parse(properties[2]);
+                    Integer returnFlightId = parseReturnFlightId(properties[3]);
+                    int bookingId = parseBookingId(properties, 4);
 
-                    // Check for return flight (handle NULL value)
-                    Flight returnFlight = null;
-                    if (!properties[3].equalsIgnoreCase("NULL") && !properties[3].isEmpty()) {
-                        int returnFlightId = Integer.parseInt(properties[3]);
-                        returnFlight = fbs.getFlightByID(returnFlightId);
-                    }
-
-                    // Find the customer and outbound flight
-                    Customer customer = fbs.getCustomerByID(customerId);
-                    Flight outboundFlight = fbs.getFlightByID(outboundFlightId);
-
-                    if (customer == null || outboundFlight == null) {
-                        throw new FlightBookingSystemException("Invalid customer or flight ID on line " + line_idx);
-                    }
-
-                    // Create a new booking with return flight handling
-                    Booking booking = new Booking(customer, outboundFlight, returnFlight, bookingDate);
-
-                    // Add the booking to the customer and flight
-                    customer.addBooking(booking);
-                    outboundFlight.addPassenger(customer);
-                    if (returnFlight != null) {
-                        returnFlight.addPassenger(customer);
-                    }
-
+                    records.add(new BookingRecord(bookingId, customerId, outboundFlightId, returnFlightId, bookingDate, line_idx));
                 } catch (NumberFormatException ex) {
                     throw new FlightBookingSystemException("Error parsing booking data on line " + line_idx + 
                         "\nError: " + ex);
@@ -86,6 +157,7 @@ public class BookingDataManager implements DataManager {
                 line_idx++;
             }
         }
+        return records;
     }
 
     /**
@@ -97,7 +169,180 @@ public class BookingDataManager implements DataManager {
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
+        synchronized (SNAPSHOT_LOCK) {
+            writeSnapshot(fbs);
+            discardJournals();
+        }
+    }
+
+    /**
+     * Adds the bookings file to a generation that is committed along with other
+     * files. Once it is committed, the caller must call {@link #discardJournals()}
+     * while still holding {@link #SNAPSHOT_LOCK}.
+     */
+    void stage(FlightBookingSystem fbs, GenerationCommit commit) throws IOException {
+        commit.add(RESOURCE, path -> writeBookings(fbs, path));
+        sequence.stage(fbs.getHighestBookingId(), commit);
+    }
+
+    /**
+     * Reserves every booking ID recorded in the sequence file, so they are not allocated again.
+     *
+     * @param fbs The flight booking system to reserve the IDs in.
+     * @throws IOException If the sequence file cannot be read.
+     * @throws FlightBookingSystemException If the sequence file is invalid.
+     */
+    void loadSequence(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        fbs.reserveBookingIds(sequence.read());
+    }
+
+    /**
+     * Writes the sequence file on its own, for storage that keeps bookings elsewhere.
+     */
+    void writeSequence(FlightBookingSystem fbs) throws IOException {
+        sequence.write(fbs.getHighestBookingId());
+    }
+
+    /**
+     * Discards both journals once every change in them is part of the bookings file.
+     */
+    void discardJournals() throws IOException {
+        journal.truncate();
+        checkpointJournal.delete();
+    }
+
+    /**
+     * Checks whether any booking changes are journaled but not yet part of the bookings file.
+     *
+     * @return True if storing the bookings would change the bookings file.
+     */
+    public boolean hasJournaledChanges() {
+        return !journal.isEmpty() || !checkpointJournal.isEmpty();
+    }
+
+    /**
+     * Collects the IDs of the bookings that the journaled changes add, cancel or
+     * move, so a store can write only those bookings.
+     *
+     * @return The booking IDs, or null if a record written before bookings had IDs
+     *         does not name its booking.
+     * @throws IOException If a journal cannot be read.
+     */
+    Set<Integer> getJournaledBookingIds() throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        boolean[] complete = {true};
+        BookingJournal.RecordHandler collect = (properties, line_idx) -> {
+            int index;
+            switch (properties[0]) {
+                case ADD:
+                    index = 5;
+                    break;
+                case CANCEL:
+                    index = 3;
+                    break;
+                case REBOOK:
+                    index = 4;
+                    break;
+                default:
+                    complete[0] = false;
+                    return;
+            }
+            try {
+                int bookingId = parseBookingId(properties, index);
+                if (bookingId != 0) {
+                    ids.add(bookingId);
+                    return;
+                }
+            } catch (NumberFormatException ex) {
+                // Treated like a record without an ID
+            }
+            complete[0] = false;
+        };
+        checkpointJournal.replay(collect);
+        journal.replay(collect);
+        return complete[0] ? ids : null;
+    }
+
+    /**
+     * Moves the current journal aside so it can be folded into the bookings file by
+     * a checkpoint while new changes are appended to a fresh journal.
+     *
+     * @return True if there are journaled changes waiting to be folded.
+     */
+    boolean rotateJournal() throws IOException {
+        return journal.rotateTo(checkpointJournal);
+    }
+
+    /**
+     * Replays the changes moved aside by {@link #rotateJournal()}.
+     *
+     * @return A message for each journal record that was set aside.
+     */
+    List<String> replayCheckpointJournal(FlightBookingSystem fbs) throws IOException {
+        return checkpointJournal.replay((properties, line_idx) -> applyJournalRecord(fbs, properties, line_idx));
+    }
+
+    /**
+     * Checks whether the changes moved aside by {@link #rotateJournal()} are still
+     * waiting to be folded, rather than already part of a bookings file stored since.
+     */
+    boolean isCheckpointPending() {
+        return !checkpointJournal.isEmpty();
+    }
+
+    /**
+     * Writes every booking in the system beside the bookings file, so a checkpoint
+     * can do the writing without holding {@link #SNAPSHOT_LOCK} and then move the
+     * file into place with {@link #commitCheckpoint(FlightBookingSystem)}.
+     */
+    void stageCheckpoint(FlightBookingSystem fbs) throws IOException {
+        Path staged = Paths.get(STAGED);
+        Files.deleteIfExists(staged);
+        writeBookings(fbs, staged);
+    }
+
+    /**
+     * Moves the bookings written by {@link #stageCheckpoint(FlightBookingSystem)}
+     * into place and discards the changes moved aside by {@link #rotateJournal()},
+     * which they now include. The caller must hold {@link #SNAPSHOT_LOCK}.
+     */
+    void commitCheckpoint(FlightBookingSystem fbs) throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        commit.add(RESOURCE, path -> Files.move(Paths.get(STAGED), path));
+        sequence.stage(fbs.getHighestBookingId(), commit);
+        commit.commit();
+        discardCheckpointJournal();
+    }
+
+    /**
+     * Deletes the bookings written by {@link #stageCheckpoint(FlightBookingSystem)}
+     * when they are no longer needed.
+     */
+    void abandonCheckpoint() throws IOException {
+        Files.deleteIfExists(Paths.get(STAGED));
+    }
+
+    /**
+     * Discards the changes moved aside by {@link #rotateJournal()} once they are
+     * part of the bookings file.
+     */
+    void discardCheckpointJournal() throws IOException {
+        checkpointJournal.delete();
+    }
+
+    /**
+     * Writes every booking in the system to the bookings file. The file is written
+     * and synced beside the original and then moved into place, so readers never
+     * see it half written.
+     */
+    void writeSnapshot(FlightBookingSystem fbs) throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        stage(fbs, commit);
+        commit.commit();
+    }
+
+    private void writeBookings(FlightBookingSystem fbs, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path.toFile()))) {
             for (Customer customer : fbs.getCustomers()) {
                 for (Booking booking : customer.getBookings()) {
                     // Store outbound flight
@@ -111,10 +356,209 @@ public class BookingDataManager implements DataManager {
                     } else {
                         out.print("NULL" + SEPARATOR);
                     }
-                    
+
+                    out.print(booking.getId() + SEPARATOR);
                     out.println();
                 }
             }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + path);
+            }
+        }
+    }
+
+    /**
+     * Records a new booking in the journal.
+     *
+     * @param booking The booking being added, which must already have its ID.
+     * @throws IOException If the journal cannot be written.
+     */
+    public void journalBooking(Booking booking) throws IOException {
+        Flight returnFlight = booking.getReturnFlight();
+        journal.append(ADD, booking.getCustomer().getId(), booking.getOutboundFlight().getId(),
+                booking.getBookingDate(), returnFlight != null ? returnFlight.getId() : "NULL", booking.getId());
+    }
+
+    /**
+     * Records the cancellation of a booking in the journal.
+     *
+     * @param booking The booking being canceled.
+     * @throws IOException If the journal cannot be written.
+     */
+    public void journalCancellation(Booking booking) throws IOException {
+        journal.append(CANCEL, booking.getCustomer().getId(), booking.getOutboundFlight().getId(), booking.getId());
+    }
+
+    /**
+     * Records that one flight of a booking was replaced by another.
+     *
+     * @param booking The booking being changed.
+     * @param oldFlightId The ID of the flight being replaced.
+     * @param newFlightId The ID of the flight replacing it.
+     * @throws IOException If the journal cannot be written.
+     */
+    public void journalRebooking(Booking booking, int oldFlightId, int newFlightId) throws IOException {
+        journal.append(REBOOK, booking.getCustomer().getId(), oldFlightId, newFlightId, booking.getId());
+    }
+
+    /**
+     * Applies a single journal record to the flight booking system.
+     * Replaying is idempotent, so records that were already folded into the bookings
+     * file by a write interrupted before the journal was truncated change nothing.
+     */
+    private void applyJournalRecord(FlightBookingSystem fbs, String[] properties, int line_idx)
+            throws FlightBookingSystemException {
+        try {
+            switch (properties[0]) {
+                case ADD: {
+                    if (properties.length < 6) {
+                        break; // Reported as a format error below
+                    }
+                    int customerId = Integer.parseInt(properties[1]);
+                    int outboundFlightId = Integer.parseInt(properties[2]);
+                    LocalDate bookingDate = LocalDate.parse(properties[3]);
+                    Integer returnFlightId = parseReturnFlightId(properties[4]);
+                    int bookingId = parseBookingId(properties, 5);
+
+                    boolean applied = bookingId != 0
+                            ? lookupBooking(fbs, null, bookingId, 0) != null
+                            : hasBooking(fbs.getCustomerByID(customerId), outboundFlightId, returnFlightId, bookingDate);
+                    if (!applied) {
+                        linkBooking(fbs, bookingId, customerId, outboundFlightId, returnFlightId, bookingDate, line_idx);
+                    }
+                    return;
+                }
+                case CANCEL: {
+                    if (properties.length < 4) {
+                        break;
+                    }
+                    Customer customer = fbs.getCustomerByID(Integer.parseInt(properties[1]));
+                    Booking booking = lookupBooking(fbs, customer, parseBookingId(properties, 3),
+                            Integer.parseInt(properties[2]));
+                    if (booking != null) {
+                        fbs.removeBooking(booking);
+                        customer.removeBooking(booking);
+                        booking.getOutboundFlight().removePassenger(customer);
+                        if (booking.getReturnFlight() != null) {
+                            booking.getReturnFlight().removePassenger(customer);
+                        }
+                    }
+                    return;
+                }
+                case REBOOK: {
+                    if (properties.length < 5) {
+                        break;
+                    }
+                    Customer customer = fbs.getCustomerByID(Integer.parseInt(properties[1]));
+                    int oldFlightId = Integer.parseInt(properties[2]);
+                    Flight newFlight = fbs.getFlightByID(Integer.parseInt(properties[3]));
+                    Booking booking = lookupBooking(fbs, customer, parseBookingId(properties, 4), oldFlightId);
+                    Flight oldFlight = booking != null ? fbs.moveBooking(booking, oldFlightId, newFlight) : null;
+                    if (oldFlight != null) {
+                        oldFlight.removePassenger(customer);
+                        newFlight.addPassenger(customer);
+                    }
+                    return;
+                }
+                default:
+                    break;
+            }
+        } catch (NumberFormatException ex) {
+            throw new FlightBookingSystemException("Error parsing booking journal on line " + line_idx
+                + "\nError: " + ex);
+        } catch (DateTimeParseException ex) {
+            throw new FlightBookingSystemException("Invalid date format in booking journal on line " + line_idx
+                + "\nError: " + ex);
+        }
+        throw new FlightBookingSystemException("Invalid booking journal record on line " + line_idx);
+    }
+
+    /**
+     * Finds the booking a journal record refers to, by its ID when the record has
+     * one and by its customer and flight otherwise.
+     */
+    private static Booking lookupBooking(FlightBookingSystem fbs, Customer customer, int bookingId, int flightId) {
+        if (bookingId == 0) {
+            return fbs.findBooking(customer, flightId);
+        }
+        try {
+            return fbs.getBookingByID(bookingId);
+        } catch (FlightBookingSystemException ex) {
+            return null; // Already cancelled
+        }
+    }
+
+    /**
+     * Creates a booking, links it to its customer and flights and adds it to the
+     * booking index. A booking ID of 0 allocates a new one.
+     */
+    static void linkBooking(FlightBookingSystem fbs, int bookingId, int customerId, int outboundFlightId,
+            Integer returnFlightId, LocalDate bookingDate, int line_idx) throws FlightBookingSystemException {
+        // Check for return flight (handle NULL value)
+        Flight returnFlight = null;
+        if (returnFlightId != null) {
+            returnFlight = fbs.getFlightByID(returnFlightId);
+        }
+
+        // Find the customer and outbound flight
+        Customer customer = fbs.getCustomerByID(customerId);
+        Flight outboundFlight = fbs.getFlightByID(outboundFlightId);
+
+        if (customer == null || outboundFlight == null) {
+            throw new FlightBookingSystemException("Invalid customer or flight ID on line " + line_idx);
+        }
+
+        // Create a new booking with return flight handling
+        Booking booking = new Booking(bookingId, customer, outboundFlight, returnFlight, bookingDate);
+
+        // Add the booking to the index, customer and flight
+        try {
+            fbs.addBooking(booking);
+        } catch (IllegalArgumentException ex) {
+            throw new FlightBookingSystemException(ex.getMessage() + " on line " + line_idx);
+        }
+        customer.addBooking(booking);
+        outboundFlight.addPassenger(customer);
+        if (returnFlight != null) {
+            returnFlight.addPassenger(customer);
+        }
+    }
+
+    /**
+     * Checks whether a customer already holds a booking with exactly these details.
+     */
+    private static boolean hasBooking(Customer customer, int outboundFlightId, Integer returnFlightId,
+            LocalDate bookingDate) {
+        for (Booking booking : customer.getBookingsView()) {
+            Flight returnFlight = booking.getReturnFlight();
+            if (booking.getOutboundFlight().getId() == outboundFlightId
+                    && booking.getBookingDate().equals(bookingDate)
+                    && (returnFlight == null ? returnFlightId == null
+                            : returnFlightId != null && returnFlight.getId() == returnFlightId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses the booking ID at the given field, which is missing from bookings
+     * stored before they had IDs.
+     */
+    private static int parseBookingId(String[] properties, int index) {
+        if (properties.length <= index || properties[index].isEmpty()) {
+            return 0;
+        }
+        return Integer.parseInt(properties[index]);
+    }
+
+    /**
+     * Parses the stored return flight ID, which is "NULL" or empty when there is none.
+     */
+    private static Integer parseReturnFlightId(String value) {
+        if (value.equalsIgnoreCase("NULL") || value.isEmpty()) {
+            return null;
         }
+        return Integer.parseInt(value);
     }
 }
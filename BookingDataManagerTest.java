@@ -0,0 +1,161 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.commands.AddBooking;
+import bcu.cmp5332.bookingsystem.commands.AddFlight;
+import bcu.cmp5332.bookingsystem.commands.CancelBooking;
+import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.DeleteCustomer;
+import bcu.cmp5332.bookingsystem.commands.DeleteFlight;
+import bcu.cmp5332.bookingsystem.commands.EditBooking;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.HeadlessException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingDataManagerTest {
+
+    // Every data test shares this directory, since the data classes read it once
+    static final Path DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "bookingsystem-test");
+
+    static {
+        System.setProperty("bookingsystem.data.dir", DIRECTORY.toString());
+        System.setProperty("java.awt.headless", "true"); // Commands confirm with a dialog
+    }
+
+    private final BookingDataManager bookingDataManager = new BookingDataManager();
+    private FlightBookingSystem fbs;
+
+    @BeforeEach
+    void setUp() throws IOException, FlightBookingSystemException {
+        clearDirectory();
+        FlightBookingSystem stored = new FlightBookingSystem();
+        stored.addFlight(new Flight(1, "FL100", "London", "Paris", LocalDate.of(2030, 1, 10), 10, 100.0));
+        stored.addFlight(new Flight(2, "FL200", "London", "Rome", LocalDate.of(2030, 1, 12), 10, 120.0));
+        stored.addCustomer(new Customer(1, "Roshan", "111111111", "roshan@example.com"));
+        FlightBookingSystemData.storeText(stored);
+        fbs = FlightBookingSystemData.load();
+    }
+
+    /**
+     * Deletes everything a previous test left in the data directory.
+     */
+    static void clearDirectory() throws IOException {
+        if (Files.exists(DIRECTORY)) {
+            try (Stream<Path> paths = Files.walk(DIRECTORY)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+        Files.createDirectories(DIRECTORY);
+    }
+
+    @Test
+    void testReplaysJournalOnLoad() throws Exception {
+        Booking booking = book(1, 1);
+        execute(EditBooking.forBooking(booking.getId(), 1, 2));
+
+        FlightBookingSystem reloaded = FlightBookingSystemData.load();
+        Booking replayed = reloaded.getBookingByID(booking.getId());
+        assertEquals(2, replayed.getOutboundFlight().getId());
+        assertEquals(0, reloaded.getFlightByID(1).getPassengerCount());
+        assertEquals(1, reloaded.getFlightByID(2).getPassengerCount());
+        assertEquals(1, reloaded.getCustomerByID(1).getBookingCount());
+    }
+
+    @Test
+    void testReloadAfterDeletingCustomerWithCancelledBooking() throws Exception {
+        execute(CancelBooking.forBooking(book(1, 1).getId()));
+        execute(new DeleteCustomer(1));
+        FlightBookingSystemData.storeChanges(fbs); // As the write-behind persister would
+
+        FlightBookingSystem reloaded = FlightBookingSystemData.load();
+        assertEquals(0, reloaded.getCustomerCount());
+        assertEquals(0, reloaded.getFlightByID(1).getPassengerCount());
+        assertFalse(Files.exists(DIRECTORY.resolve("bookings.journal.rejected"))); // Every record replayed
+    }
+
+    @Test
+    void testReloadAfterDeletingFlightWithRebookedBooking() throws Exception {
+        Booking booking = book(1, 1);
+        execute(EditBooking.forBooking(booking.getId(), 1, 2));
+        execute(new DeleteFlight(1));
+        FlightBookingSystemData.storeChanges(fbs); // As the write-behind persister would
+
+        FlightBookingSystem reloaded = FlightBookingSystemData.load();
+        assertThrows(FlightBookingSystemException.class, () -> reloaded.getFlightByID(1));
+        assertEquals(2, reloaded.getBookingByID(booking.getId()).getOutboundFlight().getId());
+        assertFalse(Files.exists(DIRECTORY.resolve("bookings.journal.rejected")));
+    }
+
+    @Test
+    void testReloadAfterBookingFlightNotYetWrittenBehind() throws Exception {
+        // Left for the write-behind persister, which never runs here
+        execute(new AddFlight("FL300", "London", "Oslo", LocalDate.of(2030, 2, 1), 10, 90.0));
+        int flightId = fbs.getHighestFlightId();
+        Booking booking = book(1, flightId);
+
+        FlightBookingSystem reloaded = FlightBookingSystemData.load();
+        assertEquals(flightId, reloaded.getBookingByID(booking.getId()).getOutboundFlight().getId());
+    }
+
+    @Test
+    void testCheckpointSetsAsideRecordThatCannotBeReplayed() throws Exception {
+        Booking booking = book(1, 1);
+        Files.write(DIRECTORY.resolve("bookings.journal"), List.of("ADD::9::1::2030-01-01::NULL::99::"),
+                StandardOpenOption.APPEND); // Refers to a customer that does not exist
+
+        FlightBookingSystem reloaded = FlightBookingSystemData.load();
+        assertEquals(1, reloaded.getCustomerByID(1).getBookingCount());
+        assertEquals(1, FlightBookingSystemData.getLoadWarnings().size());
+
+        List<String> reports = new ArrayList<>();
+        assertTrue(new Checkpointer(1, TimeUnit.HOURS, reports::add).checkpoint());
+        assertEquals(1, reports.size());
+        assertFalse(bookingDataManager.hasJournaledChanges()); // Not retried by the next checkpoint
+        assertEquals(List.of("ADD::9::1::2030-01-01::NULL::99::"),
+                Files.readAllLines(DIRECTORY.resolve("bookings.journal.rejected")));
+        assertEquals(1, FlightBookingSystemData.load().getBookingByID(booking.getId()).getCustomer().getId());
+    }
+
+    /**
+     * Books a flight through the AddBooking command.
+     *
+     * @return The new booking.
+     */
+    private Booking book(int customerId, int flightId) throws FlightBookingSystemException {
+        execute(new AddBooking(customerId, flightId, null));
+        List<Booking> bookings = fbs.getCustomerByID(customerId).getBookings();
+        return bookings.get(bookings.size() - 1);
+    }
+
+    /**
+     * Runs a command the way the GUI does. Tests run headless, so the confirmation
+     * dialog a command shows once it has finished throws instead of opening.
+     */
+    private void execute(Command command) throws FlightBookingSystemException {
+        try {
+            command.execute(fbs);
+        } catch (HeadlessException ex) {
+            // The command has finished by the time it shows its dialog
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+
+/**
+ * An append-only journal of booking mutations. Each mutation is written as one
+ * compact line of values separated by "::", so recording a change costs a single
+ * small append regardless of how many bookings exist. The journal is replayed on
+ * top of the bookings file when data is loaded and truncated once a fresh copy of
+ * the bookings file has been written.
+ * <p>
+ * A record that cannot be replayed is copied to a separate rejected-records file,
+ * skipped and reported back to the caller, so one bad record never stops the rest
+ * of the journal from loading or being folded into the bookings file.
+ */
+public class BookingJournal {
+
+    private static final String SEPARATOR = "::";
+    private static final Object LOCK = new Object(); // Serialises appends, replays and truncation
+
+    private final File file;
+    private final File rejected;
+
+    /**
+     * Creates a journal backed by the file at the given path.
+     *
+     * @param path The path of the journal file.
+     * @param rejectedPath The path of the file that receives records which cannot be replayed.
+     */
+    public BookingJournal(String path, String rejectedPath) {
+        this.file = new File(path);
+        this.rejected = new File(rejectedPath);
+    }
+
+    /**
+     * Handles a single record read back from the journal.
+     */
+    public interface RecordHandler {
+
+        /**
+         * Applies one journal record.
+         *
+         * @param properties The values of the record.
+         * @param lineNumber The line of the journal the record was read from.
+         * @throws FlightBookingSystemException If the record cannot be applied.
+         */
+        void apply(String[] properties, int lineNumber) throws FlightBookingSystemException;
+    }
+
+    /**
+     * Appends a record to the end of the journal and forces it to disk before
+     * returning, so a change reported to the user survives a power failure. Every
+     * value is followed by the separator, so a record torn by a crash can be
+     * recognised when replaying.
+     *
+     * @param values The values that make up the record.
+     * @throws IOException If the record cannot be written.
+     */
+    public void append(Object... values) throws IOException {
+        StringBuilder record = new StringBuilder();
+        for (Object value : values) {
+            record.append(value).append(SEPARATOR);
+        }
+        record.append(System.lineSeparator());
+        ByteBuffer bytes = ByteBuffer.wrap(record.toString().getBytes(StandardCharsets.UTF_8));
+        synchronized (LOCK) {
+            boolean created = !file.exists();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false); // The record's data, not the file's timestamps
+            }
+            if (created) {
+                GenerationCommit.syncDirectory(file.toPath().toAbsolutePath().getParent());
+            }
+        }
+    }
+
+    /**
+     * Reads the journal from the beginning and passes each record to the handler
+     * in the order it was written. A missing journal is treated as empty, and an
+     * incomplete final record left behind by a crash is ignored. A record that is
+     * malformed or cannot be applied is set aside and the replay carries on.
+     *
+     * @param handler The handler that applies each record.
+     * @return A message for each record set aside, empty if every record was applied.
+     * @throws IOException If the journal cannot be read.
+     */
+    public List<String> replay(RecordHandler handler) throws IOException {
+        Map<String, String> rejects = new LinkedHashMap<>(); // Record, then why it was set aside
+        synchronized (LOCK) {
+            if (!file.exists()) {
+                return List.of();
+            }
+            try (Scanner sc = new Scanner(file)) {
+                int line_idx = 0;
+                while (sc.hasNextLine()) {
+                    String line = sc.nextLine().trim();
+                    line_idx++;
+                    if (line.isEmpty()) {
+                        continue; // Skip empty lines
+                    }
+                    if (!line.endsWith(SEPARATOR)) {
+                        if (!sc.hasNextLine()) {
+                            break; // Torn final record, the mutation never completed
+                        }
+                        rejects.putIfAbsent(line, "Incomplete journal record on line " + line_idx);
+                        continue;
+                    }
+                    try {
+                        handler.apply(line.split(SEPARATOR, -1), line_idx);
+                    } catch (FlightBookingSystemException ex) {
+                        rejects.putIfAbsent(line, ex.getMessage());
+                    }
+                }
+            }
+            keepRejected(rejects.keySet());
+        }
+
+        List<String> messages = new ArrayList<>(rejects.size());
+        for (Map.Entry<String, String> reject : rejects.entrySet()) {
+            messages.add("Set aside booking record \"" + reject.getKey() + "\" from " + file.getName() + ": "
+                    + reject.getValue() + " It is kept in " + rejected.getPath() + ".");
+        }
+        return messages;
+    }
+
+    /**
+     * Appends the records set aside by a replay to the rejected-records file, leaving
+     * out any that an earlier replay of the same journal already put there.
+     */
+    private void keepRejected(Collection<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        Set<String> kept = rejected.exists()
+                ? new HashSet<>(Files.readAllLines(rejected.toPath(), StandardCharsets.UTF_8))
+                : new HashSet<>();
+        List<String> added = new ArrayList<>();
+        for (String line : lines) {
+            if (kept.add(line)) {
+                added.add(line);
+            }
+        }
+        Files.write(rejected.toPath(), added, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Discards every record in the journal. This should only be called once the
+     * records have been folded into a freshly written bookings file.
+     *
+     * @throws IOException If the journal cannot be truncated.
+     */
+    public void truncate() throws IOException {
+        synchronized (LOCK) {
+            if (file.exists()) {
+                new FileWriter(file, false).close();
+            }
+        }
+    }
+
+    /**
+     * Moves the records of this journal into another journal file so that they can
+     * be folded into a snapshot while new records keep being appended here.
+     * If the target still holds records from an earlier, unfinished rotation it is
+     * left as it is and this journal keeps its records.
+     *
+     * @param target The journal that receives the records.
+     * @return True if the target holds records to fold after the call.
+     * @throws IOException If the journal cannot be moved.
+     */
+    public boolean rotateTo(BookingJournal target) throws IOException {
+        synchronized (LOCK) {
+            if (!target.isEmpty()) {
+                return true;
+            }
+            if (isEmpty()) {
+                return false;
+            }
+            target.delete();
+            if (!file.renameTo(target.file)) {
+                throw new IOException("Failed to rotate " + file.getPath() + " to " + target.file.getPath());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checks whether the journal holds no records.
+     *
+     * @return True if the journal file is missing or empty.
+     */
+    public boolean isEmpty() {
+        synchronized (LOCK) {
+            return !file.exists() || file.length() == 0;
+        }
+    }
+
+    /**
+     * Deletes the journal file.
+     *
+     * @throws IOException If the file exists but cannot be deleted.
+     */
+    public void delete() throws IOException {
+        synchronized (LOCK) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Failed to delete " + file.getPath());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.data.BulkImporter;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.io.IOException;
+
+/**
+ * The {@code BulkImport} command adds every flight or customer in a CSV or "::"
+ * separated file to the flight booking system, and saves them once at the end.
+ * Progress is printed as each stage of the import finishes.
+ */
+public class BulkImport implements Command {
+
+    private final boolean flights;
+    private final String path;
+
+    /**
+     * Creates a command to import flights or customers from a file.
+     *
+     * @param flights True to import flights, false to import customers.
+     * @param path The path of the file to import.
+     */
+    public BulkImport(boolean flights, String path) {
+        this.flights = flights;
+        this.path = path;
+    }
+
+    /**
+     * Executes the import command.
+     * Every row is validated before any of them is added, so a failed import changes nothing.
+     *
+     * @param flightBookingSystem The flight booking system instance.
+     * @throws FlightBookingSystemException If the file cannot be read or holds an invalid row.
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        BulkImporter importer = new BulkImporter(System.out::println);
+        try {
+            int imported = flights
+                    ? importer.importFlights(flightBookingSystem, path)
+                    : importer.importCustomers(flightBookingSystem, path);
+            System.out.println(imported + (flights ? " flight(s)" : " customer(s)") + " imported.");
+        } catch (IOException ex) {
+            throw new FlightBookingSystemException("Failed to import " + path + ": " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports large numbers of flights or customers from a file in one go.
+ * <p>
+ * A file ending in {@code .csv} holds comma separated values under a header line;
+ * any other file holds "::" separated lines like the data files, without IDs:
+ * <pre>
+ * flights     flight number, origin, destination, departure date, capacity, price
+ * customers   name, phone, email (optional)
+ * </pre>
+ * The file is parsed and each row validated on every core by a {@link ChunkedFileParser}.
+ * Flights repeating the flight number and departure date of another flight, in the
+ * system or the import, are rejected by the system's index as they are added.
+ * Customers are checked for a phone number or email address used by another
+ * customer, through the system's indexes and against the rest of the import. The
+ * whole import gets one block of IDs and is stored with a single write at the end.
+ * Nothing is added unless every row is valid.
+ */
+public class BulkImporter {
+
+    /**
+     * Receives a message as each stage of an import finishes.
+     */
+    public interface Progress {
+
+        /**
+         * Reports that a stage has finished.
+         *
+         * @param message A description of the stage.
+         */
+        void report(String message);
+    }
+
+    private final Progress progress;
+
+    /**
+     * Creates an importer that reports its progress to the given listener.
+     *
+     * @param progress The listener for progress messages.
+     */
+    public BulkImporter(Progress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Imports every flight in a file and stores them.
+     *
+     * @param fbs The flight booking system to add the flights to.
+     * @param path The path of the file to import.
+     * @return The number of flights imported.
+     * @throws IOException If the file cannot be read or the flights cannot be stored.
+     * @throws FlightBookingSystemException If a row is invalid or repeats another flight.
+     */
+    public int importFlights(FlightBookingSystem fbs, String path) throws IOException, FlightBookingSystemException {
+        long start = System.nanoTime();
+        List<Flight> flights = parser(BulkImporter::parseFlight, path).parse(path);
+        progress.report("Read and validated " + flights.size() + " flight(s) from " + path + elapsed(start));
+
+        if (flights.isEmpty()) {
+            return 0;
+        }
+        start = System.nanoTime();
+        int firstId = fbs.reserveFlightIds(flights.size());
+        for (int i = 0; i < flights.size(); i++) {
+            flights.get(i).setId(firstId + i);
+        }
+        fbs.addFlights(flights); // Rejects a repeated number and date, in the system or the import
+        FlightBookingSystemData.storeChanges(fbs);
+        progress.report("Added and saved flights #" + firstId + " to #" + (firstId + flights.size() - 1)
+                + elapsed(start));
+        return flights.size();
+    }
+
+    /**
+     * Imports every customer in a file and stores them.
+     *
+     * @param fbs The flight booking system to add the customers to.
+     * @param path The path of the file to import.
+     * @return The number of customers imported.
+     * @throws IOException If the file cannot be read or the customers cannot be stored.
+     * @throws FlightBookingSystemException If a row is invalid or repeats another customer's phone or email.
+     */
+    public int importCustomers(FlightBookingSystem fbs, String path) throws IOException, FlightBookingSystemException {
+        long start = System.nanoTime();
+        List<Customer> customers = parser(BulkImporter::parseCustomer, path).parse(path);
+        progress.report("Read " + customers.size() + " customer(s) from " + path + elapsed(start));
+
+        // Check phone and email against the system's indexes and the rest of the import
+        start = System.nanoTime();
+        Set<String> phones = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (Customer customer : customers) {
+            String phone = customer.getPhone();
+            if (!fbs.findCustomersByPhone(phone).isEmpty() || !phones.add(FlightBookingSystem.normalizePhone(phone))) {
+                throw new FlightBookingSystemException("There is a customer with the same phone number ("
+                        + phone + ") in the system or the import.");
+            }
+            String email = customer.getEmail();
+            if (email.isEmpty()) {
+                continue; // Email is optional
+            }
+            if (!fbs.findCustomersByEmail(email).isEmpty() || !emails.add(FlightBookingSystem.normalizeEmail(email))) {
+                throw new FlightBookingSystemException("There is a customer with the same email address ("
+                        + email + ") in the system or the import.");
+            }
+        }
+        progress.report("Validated " + customers.size() + " customer(s)" + elapsed(start));
+
+        if (customers.isEmpty()) {
+            return 0;
+        }
+        start = System.nanoTime();
+        int firstId = fbs.reserveCustomerIds(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            customers.get(i).setId(firstId + i);
+        }
+        fbs.addCustomers(customers);
+        FlightBookingSystemData.storeChanges(fbs);
+        progress.report("Added and saved customers #" + firstId + " to #" + (firstId + customers.size() - 1)
+                + elapsed(start));
+        return customers.size();
+    }
+
+    /**
+     * Creates a parser for the format the file name implies.
+     */
+    private static <T> ChunkedFileParser<T> parser(ChunkedFileParser.LineParser<T> lineParser, String path) {
+        if (path.toLowerCase().endsWith(".csv")) {
+            return new ChunkedFileParser<>(lineParser, FieldTokenizer.CSV, true);
+        }
+        return new ChunkedFileParser<>(lineParser);
+    }
+
+    /**
+     * Parses and validates one flight row. The flight is given its ID later.
+     */
+    private static Flight parseFlight(FieldTokenizer properties, int line_idx) throws FlightBookingSystemException {
+        if (properties.fieldCount() < 6) {
+            throw new FlightBookingSystemException("Invalid flight data format on line " + line_idx);
+        }
+
+        try {
+            String flightNumber = properties.getString(0).trim();
+            String origin = properties.getString(1).trim();
+            String destination = properties.getString(2).trim();
+            if (flightNumber.isEmpty() || origin.isEmpty() || destination.isEmpty()) {
+                throw new FlightBookingSystemException("Missing flight number, origin or destination on line "
+                        + line_idx);
+            }
+            int capacity = properties.getInt(4);
+            double price = properties.getDouble(5);
+            if (capacity <= 0 || price < 0) {
+                throw new FlightBookingSystemException("Invalid capacity or price on line " + line_idx);
+            }
+            return new Flight(0, flightNumber, origin, destination, properties.getDate(3), capacity, price);
+        } catch (NumberFormatException | java.time.format.DateTimeParseException ex) {
+            throw new FlightBookingSystemException("Unable to parse flight data on line " + line_idx
+                + "\nError: " + ex);
+        }
+    }
+
+    /**
+     * Parses and validates one customer row. The customer is given its ID later.
+     */
+    private static Customer parseCustomer(FieldTokenizer properties, int line_idx) throws FlightBookingSystemException {
+        if (properties.fieldCount() < 2) {
+            throw new FlightBookingSystemException("Invalid customer data format on line " + line_idx);
+        }
+
+        String name = properties.getString(0).trim();
+        String phone = properties.getString(1).trim();
+        String email = properties.fieldCount() > 2 ? properties.getString(2).trim() : ""; // Email is optional
+        if (name.isEmpty() || phone.isEmpty()) {
+            throw new FlightBookingSystemException("Missing customer name or phone on line " + line_idx);
+        }
+        return new Customer(0, name, phone, email);
+    }
+
+    private static String elapsed(long start) {
+        return String.format(" in %.1f s.", (System.nanoTime() - start) / 1e9);
+    }
+}
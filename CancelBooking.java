@@ -12,12 +12,14 @@ import bcu.cmp5332.bookingsystem.gui.MainWindow;
 
 /**
  * The {@code CancelBooking} command allows a customer to cancel their flight booking.
+ * The booking is identified either by its ID or by the customer and one of its flights.
  * A fixed cancellation fee is deducted from the refund amount for each canceled flight.
  */
 public class CancelBooking implements Command {
 
     private final int customerId;
     private final int flightId;
+    private final int bookingId; // 0 when the booking is found by customer and flight
     private static final double CANCELLATION_FEE = 50.0; // Fixed cancellation fee
 
     /**
@@ -27,8 +29,23 @@ public class CancelBooking implements Command {
      * @param flightId The ID of the flight being canceled.
      */
     public CancelBooking(int customerId, int flightId) {
+        this(customerId, flightId, 0);
+    }
+
+    private CancelBooking(int customerId, int flightId, int bookingId) {
         this.customerId = customerId;
         this.flightId = flightId;
+        this.bookingId = bookingId;
+    }
+
+    /**
+     * Creates a command to cancel the booking with the specified ID.
+     *
+     * @param bookingId The ID of the booking being canceled.
+     * @return The command.
+     */
+    public static CancelBooking forBooking(int bookingId) {
+        return new CancelBooking(0, 0, bookingId);
     }
 
     /**
@@ -42,25 +59,26 @@ public class CancelBooking implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        // Get the customer by ID
-        Customer customer = flightBookingSystem.getCustomerByID(customerId);
-        if (customer == null) {
-            throw new FlightBookingSystemException("Customer with ID " + customerId + " not found.");
-        }
-
-        // Find the booking to cancel
-        Booking bookingToCancel = null;
-        for (Booking booking : customer.getBookings()) {
-            if (booking.getOutboundFlight().getId() == flightId || 
-               (booking.getReturnFlight() != null && booking.getReturnFlight().getId() == flightId)) {
-                bookingToCancel = booking;
-                break;
+        Customer customer;
+        Booking bookingToCancel;
+        if (bookingId != 0) {
+            // Look the booking up directly by its ID
+            bookingToCancel = flightBookingSystem.getBookingByID(bookingId);
+            customer = bookingToCancel.getCustomer();
+        } else {
+            // Get the customer by ID
+            customer = flightBookingSystem.getCustomerByID(customerId);
+            if (customer == null) {
+                throw new FlightBookingSystemException("Customer with ID " + customerId + " not found.");
             }
-        }
 
-        // Check if the booking exists
-        if (bookingToCancel == null) {
-            throw new FlightBookingSystemException("Customer #" + customerId + " does not have a booking for Flight #" + flightId);
+            // Find the booking to cancel
+            bookingToCancel = flightBookingSystem.findBooking(customer, flightId);
+
+            // Check if the booking exists
+            if (bookingToCancel == null) {
+                throw new FlightBookingSystemException("Customer #" + customerId + " does not have a booking for Flight #" + flightId);
+            }
         }
 
         // Get outbound and return flights
@@ -76,25 +94,26 @@ public class CancelBooking implements Command {
             totalRefund = 0; // Ensure refund is not negative
         }
 
-        // Remove the booking from the customer
-        customer.getBookings().remove(bookingToCancel);
-        
-        // Remove the customer from both flights' passenger lists
-        outboundFlight.getPassengers().remove(customer);
-        if (returnFlight != null) {
-            returnFlight.getPassengers().remove(customer);
-        }
-
-        // Save the updated booking data
+        // Record the cancellation in the journal before applying it
         try {
             BookingDataManager bookingDataManager = new BookingDataManager();
-            bookingDataManager.storeData(flightBookingSystem);
+            bookingDataManager.journalCancellation(bookingToCancel);
         } catch (IOException ex) {
             throw new FlightBookingSystemException("Failed to save booking data: " + ex.getMessage());
         }
 
+        // Remove the booking from the index and the customer
+        flightBookingSystem.removeBooking(bookingToCancel);
+        customer.removeBooking(bookingToCancel);
+        
+        // Remove the customer from both flights' passenger lists
+        outboundFlight.removePassenger(customer);
+        if (returnFlight != null) {
+            returnFlight.removePassenger(customer);
+        }
+
         // Print success message in console
-        System.out.println("Booking canceled successfully.\n");
+        System.out.println("Booking #" + bookingToCancel.getId() + " canceled successfully.\n");
         System.out.println("Customer: " + customer.getName());
         System.out.println("Outbound Flight: " + outboundFlight.getFlightNumber() + 
                            " (" + outboundFlight.getOrigin() + " → " + outboundFlight.getDestination() + ")");
@@ -132,7 +151,7 @@ public class CancelBooking implements Command {
         MainWindow mainWindow = MainWindow.getInstance();
         if (mainWindow != null) {
             mainWindow.displayCustomers(); // Refresh customer details to reflect cancellation
-            mainWindow.displayFlights(flightBookingSystem.getFlights()); // Refresh flights list
+            mainWindow.displayFlights(); // Refresh flights list
         }
     }
 }
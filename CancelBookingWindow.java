@@ -77,7 +77,7 @@ public class CancelBookingWindow extends JFrame implements ActionListener {
             cancelBooking.execute(mw.getFlightBookingSystem());
 
             // Refresh the view with the list of flights
-            mw.displayFlights(mw.getFlightBookingSystem().getFlights()); // Pass the full list of flights);
+            mw.displayFlights(); // Refresh flights list
 
             // Hide (close) the CancelBookingWindow
             this.setVisible(false);
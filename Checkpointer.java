@@ -0,0 +1,126 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically folds the booking journal into a fresh bookings file on a background
+ * thread, so the journal stays short and replaying it at startup stays fast.
+ * <p>
+ * A checkpoint never touches the live {@code FlightBookingSystem}. The journal is
+ * moved aside, the stored flights, customers and bookings are loaded into a scratch
+ * system from the files or database in use, the moved records are replayed on top
+ * and the bookings are written back. Commands keep appending to a fresh journal the
+ * whole time, and only wait for the checkpoint while it moves the journal aside and
+ * while it swaps in the finished bookings.
+ */
+public class Checkpointer {
+
+    /**
+     * Receives a message when a checkpoint sets a journal record aside or fails.
+     */
+    public interface Listener {
+
+        /**
+         * Reports a problem found by a checkpoint.
+         *
+         * @param message A description of the problem.
+         */
+        void report(String message);
+    }
+
+    private final long interval;
+    private final TimeUnit unit;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a checkpointer that runs at the given interval once started.
+     *
+     * @param interval The delay between the end of one checkpoint and the start of the next.
+     * @param unit The unit of the interval.
+     * @param listener Receives a message for each problem a checkpoint finds.
+     */
+    public Checkpointer(long interval, TimeUnit unit, Listener listener) {
+        this.interval = interval;
+        this.unit = unit;
+        this.listener = listener;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "booking-checkpointer");
+            thread.setDaemon(true); // Never keeps the application alive on its own
+            return thread;
+        });
+    }
+
+    /**
+     * Starts running checkpoints in the background.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runCheckpoint, interval, interval, unit);
+    }
+
+    /**
+     * Stops scheduling checkpoints and waits for one that is already running to finish.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Folds the journaled booking changes into the bookings file.
+     *
+     * @return True if new bookings were stored, false if the journal was empty or
+     *         was folded in by someone else while the checkpoint ran.
+     * @throws IOException If the data files cannot be read or written.
+     * @throws FlightBookingSystemException If the data files are invalid.
+     */
+    public boolean checkpoint() throws IOException, FlightBookingSystemException {
+        BookingDataManager bookingDataManager = new BookingDataManager();
+        synchronized (BookingDataManager.SNAPSHOT_LOCK) {
+            if (!bookingDataManager.rotateJournal()) {
+                return false; // Nothing has changed since the last snapshot
+            }
+        }
+
+        // Anything that stores bookings meanwhile also discards the moved journal,
+        // which the commit below checks for before replacing them
+        FlightBookingSystem scratch = new FlightBookingSystem();
+        FlightBookingSystemData.loadStored(scratch);
+        List<String> rejects = bookingDataManager.replayCheckpointJournal(scratch);
+        FlightBookingSystemData.stageCheckpoint(scratch);
+
+        boolean committed;
+        synchronized (BookingDataManager.SNAPSHOT_LOCK) {
+            committed = FlightBookingSystemData.commitCheckpoint(scratch);
+        }
+        for (String reject : rejects) {
+            listener.report(reject);
+        }
+        return committed;
+    }
+
+    /**
+     * Runs a scheduled checkpoint. A failed checkpoint leaves the moved journal in
+     * place, where it is still replayed on load and retried by the next checkpoint.
+     * Records that cannot be replayed are set aside by the journal rather than
+     * failing the checkpoint, so a retry only repeats a failure to read or write
+     * the data files.
+     */
+    private void runCheckpoint() {
+        try {
+            checkpoint();
+        } catch (IOException | FlightBookingSystemException ex) {
+            listener.report("Checkpoint failed: " + ex.getMessage());
+        }
+    }
+}
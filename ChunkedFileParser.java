@@ -0,0 +1,220 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a "::" separated data file, or a file with another separator such as
+ * CSV, using every available core.
+ * <p>
+ * The file is memory-mapped and split into chunks that each end on a line boundary.
+ * Every chunk is parsed on its own thread with a {@link FieldTokenizer}, and the
+ * results are returned in file order. Chunks count their lines from their own
+ * start; if one fails, it is parsed again with its real starting line once the
+ * chunks before it are counted, so error messages report the actual line number.
+ *
+ * @param <T> The type of object each line is parsed into.
+ */
+public class ChunkedFileParser<T> {
+
+    private static final int MIN_CHUNK_SIZE = 1 << 20; // Smaller files are not worth splitting
+    private static final long MAX_CHUNK_SIZE = 1 << 30; // Keeps each chunk within one mapping
+
+    /**
+     * Parses the fields of a single non-empty line.
+     *
+     * @param <T> The type of object the line is parsed into.
+     */
+    public interface LineParser<T> {
+
+        /**
+         * Parses one line.
+         *
+         * @param fields The fields of the line.
+         * @param lineNumber The line number within the file, starting at 1.
+         * @return The parsed object.
+         * @throws FlightBookingSystemException If the line is invalid.
+         */
+        T parse(FieldTokenizer fields, int lineNumber) throws FlightBookingSystemException;
+    }
+
+    private final LineParser<T> parser;
+    private final String separator;
+    private final boolean header;
+
+    /**
+     * Creates a parser for "::" separated files that uses the given line parser for every line.
+     *
+     * @param parser The parser applied to each non-empty line.
+     */
+    public ChunkedFileParser(LineParser<T> parser) {
+        this(parser, FieldTokenizer.COLONS, false);
+    }
+
+    /**
+     * Creates a parser that uses the given line parser for every line.
+     *
+     * @param parser The parser applied to each non-empty line.
+     * @param separator The separator between fields, such as {@link FieldTokenizer#CSV}.
+     * @param header True to skip the first line of the file, which names the columns.
+     */
+    public ChunkedFileParser(LineParser<T> parser, String separator, boolean header) {
+        this.parser = parser;
+        this.separator = separator;
+        this.header = header;
+    }
+
+    /**
+     * The objects parsed from one chunk and the number of lines it spans.
+     */
+    private static final class Chunk<T> {
+
+        private final List<T> items = new ArrayList<>();
+        private int lineCount;
+    }
+
+    /**
+     * Parses every non-empty line of a file. Lines are trimmed first, as
+     * {@link String#trim()} would, and blank lines are skipped.
+     *
+     * @param path The path of the file to parse.
+     * @return The parsed objects in the order they appear in the file.
+     * @throws IOException If the file cannot be read.
+     * @throws FlightBookingSystemException If a line is invalid.
+     */
+    public List<T> parse(String path) throws IOException, FlightBookingSystemException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            int chunkCount = bounds.length - 1;
+
+            List<MappedByteBuffer> buffers = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]));
+            }
+            if (chunkCount == 1) {
+                return parseChunk(buffers.get(0), 1, header).items; // Nothing to gain from another thread
+            }
+
+            List<Future<Chunk<T>>> futures = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                MappedByteBuffer buffer = buffers.get(i);
+                boolean skipFirst = header && i == 0;
+                futures.add(ForkJoinPool.commonPool().submit(() -> parseChunk(buffer, 1, skipFirst)));
+            }
+
+            List<T> result = new ArrayList<>();
+            int firstLine = 1;
+            for (int i = 0; i < chunkCount; i++) {
+                Chunk<T> chunk;
+                try {
+                    chunk = futures.get(i).get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while parsing " + path, ex);
+                } catch (ExecutionException ex) {
+                    if (!(ex.getCause() instanceof FlightBookingSystemException)) {
+                        throw new IOException("Failed to parse " + path, ex.getCause());
+                    }
+                    // Every earlier chunk is counted, so this reports the real line number
+                    chunk = parseChunk(buffers.get(i), firstLine, header && i == 0);
+                }
+                result.addAll(chunk.items);
+                firstLine += chunk.lineCount;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Parses the lines of one chunk, numbering them from the given line, and
+     * optionally skipping its first line.
+     */
+    private Chunk<T> parseChunk(ByteBuffer buffer, int firstLine, boolean skipFirst) throws FlightBookingSystemException {
+        Chunk<T> chunk = new Chunk<>();
+        FieldTokenizer fields = new FieldTokenizer(separator);
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            // Trim the line the same way String.trim() does
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+                end--;
+            }
+
+            if (start < end && !(skipFirst && chunk.lineCount == 0)) {
+                fields.reset(buffer, start, end);
+                chunk.items.add(parser.parse(fields, firstLine + chunk.lineCount));
+            }
+            chunk.lineCount++;
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Splits the file into roughly equal chunks, one per core, each of which
+     * ends just after a line break or at the end of the file.
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int cores = Runtime.getRuntime().availableProcessors();
+        long chunkCount = Math.max(1, Math.min(cores, size / MIN_CHUNK_SIZE));
+        chunkCount = Math.max(chunkCount, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (long i = 1; i < chunkCount; i++) {
+            long position = Math.max(bounds.get(bounds.size() - 1), size * i / chunkCount);
+            long boundary = nextLineStart(channel, position, probe);
+            if (boundary < size && boundary > bounds.get(bounds.size() - 1)) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the position just after the first line break at or after the given position.
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+}
@@ -21,11 +21,19 @@ public interface Command {
             + "\taddcustomer <name> <phone> [email]                        add a new customer (email is optional)\n"
             + "\tshowflight [flight id]                                    show flight details\n"
             + "\tshowcustomer [customer id]                                show customer details\n"
+            + "\tfindcustomer [phone|email|name]                           find customers by phone, email or start of name\n"
             + "\taddbooking [customer id] [flight id]                      add a new booking\n"
+            + "\tshowbooking [booking id]                                  show booking details\n"
             + "\tcancelbooking [customer id] [flight id]                   cancel a booking\n"
-            + "\teditbooking [booking id] [Old flight id] [New flight id]  update a booking\n"
+            + "\tcancelbooking [booking id]                                cancel a booking by its id\n"
+            + "\teditbooking [customer id] [Old flight id] [New flight id] update a booking\n"
+            + "\trebook [booking id] [Old flight id] [New flight id]       update a booking by its id\n"
             + "\tdeleteflight [flight id]                                  delete a flight\n"
             + "\tdeletecustomer [customer id]                              delete a customer\n"
+            + "\tarchive                                                   move departed flights and their bookings to the archive\n"
+            + "\timport flights|customers [file]                           import rows from a .csv or \"::\" separated file\n"
+            + "\texport flights|customers|manifests [file] [filters]       export to .csv or JSON Lines; filters are origin=, destination=,\n"
+            + "\t                                                          from=, to= (YYYY-MM-DD) and flight= (flight id)\n"
             + "\tloadgui                                                   loads the GUI version of the app\n"
             + "\thelp                                                      prints this help message\n"
             + "\texit                                                      exits the program";
@@ -8,12 +8,18 @@ import bcu.cmp5332.bookingsystem.commands.AddFlight;
 import bcu.cmp5332.bookingsystem.commands.CancelBooking;
 import bcu.cmp5332.bookingsystem.commands.AddBooking;
 import bcu.cmp5332.bookingsystem.commands.AddCustomer;
+import bcu.cmp5332.bookingsystem.commands.ArchiveFlights;
+import bcu.cmp5332.bookingsystem.commands.BulkImport;
 import bcu.cmp5332.bookingsystem.commands.DeleteFlight;
 import bcu.cmp5332.bookingsystem.commands.DeleteCustomer;
 import bcu.cmp5332.bookingsystem.commands.Command;
 import bcu.cmp5332.bookingsystem.commands.EditBooking;
+import bcu.cmp5332.bookingsystem.commands.ExportData;
+import bcu.cmp5332.bookingsystem.commands.FindCustomer;
 import bcu.cmp5332.bookingsystem.commands.Help;
 import bcu.cmp5332.bookingsystem.commands.ListCustomers;
+import bcu.cmp5332.bookingsystem.commands.ShowBooking;
+import bcu.cmp5332.bookingsystem.data.DataExporter;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -61,6 +67,19 @@ public class CommandParser {
 
                 case "help":
                     return new Help();
+
+                case "archive":
+                    return new ArchiveFlights();
+
+                case "import":
+                    if (parts.length == 3 && (parts[1].equalsIgnoreCase("flights")
+                            || parts[1].equalsIgnoreCase("customers"))) {
+                        return new BulkImport(parts[1].equalsIgnoreCase("flights"), parts[2]);
+                    }
+                    break;
+
+                case "export":
+                    return handleExport(parts);
                     
                 case "showflight":
                 case "showcustomer":
@@ -79,7 +98,23 @@ public class CommandParser {
                     }
                     break;
 
+                case "findcustomer":
+                    if (parts.length >= 2) {
+                        return new FindCustomer(line.trim().substring(cmd.length()).trim());
+                    }
+                    break;
+
+                case "showbooking":
+                    if (parts.length == 2) {
+                        return new ShowBooking(Integer.parseInt(parts[1]));
+                    }
+                    break;
+
                 case "cancelbooking":
+                    if (parts.length == 2) {
+                        int bookingId = Integer.parseInt(parts[1]);
+                        return CancelBooking.forBooking(bookingId);
+                    }
                     if (parts.length == 3) {
                         int customerId = Integer.parseInt(parts[1]);
                         int flightId = Integer.parseInt(parts[2]);
@@ -96,6 +131,15 @@ public class CommandParser {
                     }
                     break;
 
+                case "rebook":
+                    if (parts.length == 4) {
+                        int bookingId = Integer.parseInt(parts[1]);
+                        int oldFlightId = Integer.parseInt(parts[2]);
+                        int newFlightId = Integer.parseInt(parts[3]);
+                        return EditBooking.forBooking(bookingId, oldFlightId, newFlightId);
+                    }
+                    break;
+
                 case "deleteflight":
                     if (parts.length == 2) {
                         int flightId = Integer.parseInt(parts[1]);
@@ -113,6 +157,8 @@ public class CommandParser {
 
         } catch (NumberFormatException ex) {
             throw new FlightBookingSystemException("Invalid number format: " + ex.getMessage());
+        } catch (DateTimeParseException ex) {
+            throw new FlightBookingSystemException("Dates must be in YYYY-MM-DD format.");
         }
 
         throw new FlightBookingSystemException("Invalid command.");
@@ -163,6 +209,60 @@ public class CommandParser {
         return new AddCustomer(name, phone, email);
     }
 
+    /**
+     * Handles an export, reading the kind of record, the file and any filters from the arguments.
+     *
+     * @param parts An array containing command arguments.
+     * @return An {@code ExportData} command for the given records and file.
+     * @throws FlightBookingSystemException If an argument is missing or unknown.
+     */
+    private static Command handleExport(String[] parts) throws FlightBookingSystemException {
+        String usage = "Invalid command. Usage: export flights|customers|manifests <file>"
+                + " [origin=..] [destination=..] [from=YYYY-MM-DD] [to=YYYY-MM-DD] [flight=id]";
+        if (parts.length < 3) {
+            throw new FlightBookingSystemException(usage);
+        }
+        DataExporter.Kind kind;
+        try {
+            kind = DataExporter.Kind.valueOf(parts[1].toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new FlightBookingSystemException(usage);
+        }
+
+        String origin = null;
+        String destination = null;
+        LocalDate from = null;
+        LocalDate to = null;
+        Integer flightId = null;
+        for (int i = 3; i < parts.length; i++) {
+            String[] option = parts[i].split("=", 2);
+            if (option.length != 2) {
+                throw new FlightBookingSystemException(usage);
+            }
+            switch (option[0].toLowerCase()) {
+                case "origin":
+                    origin = option[1];
+                    break;
+                case "destination":
+                    destination = option[1];
+                    break;
+                case "from":
+                    from = LocalDate.parse(option[1]);
+                    break;
+                case "to":
+                    to = LocalDate.parse(option[1]);
+                    break;
+                case "flight":
+                    flightId = Integer.parseInt(option[1]);
+                    break;
+                default:
+                    throw new FlightBookingSystemException(usage);
+            }
+        }
+
+        return new ExportData(kind, new DataExporter.Filter(origin, destination, from, to, flightId), parts[2]);
+    }
+
     /**
      * Reads and validates a date from user input, allowing multiple attempts.
      *
@@ -2,7 +2,10 @@ package bcu.cmp5332.bookingsystem.model;
 
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a customer in the flight booking system. A customer has a unique ID, 
@@ -14,7 +17,8 @@ public class Customer {
     private String name;
     private String phone;
     private String email;
-    private final List<Booking> bookings = new ArrayList<>();
+    private final Set<Booking> bookings = new LinkedHashSet<>(); // Keeps booking order with constant-time checks
+    private final Set<Booking> bookingsView = Collections.unmodifiableSet(bookings);
 
     /**
      * Creates a new customer with the given details.
@@ -112,15 +116,33 @@ public class Customer {
         return new ArrayList<>(bookings); // Return a copy to prevent external modification
     }
 
+    /**
+     * Gets a live, read-only view of the customer's bookings in the order they were
+     * made, without copying them. Use {@link #getBookings()} to keep a list while
+     * bookings change.
+     *
+     * @return An unmodifiable view of the bookings.
+     */
+    public Set<Booking> getBookingsView() {
+        return bookingsView;
+    }
+
+    /**
+     * Gets the number of bookings the customer has.
+     *
+     * @return The number of bookings.
+     */
+    public int getBookingCount() {
+        return bookings.size();
+    }
+
     /**
      * Adds a booking for the customer if it is not already in the list.
      *
      * @param booking The booking to add.
      */
     public void addBooking(Booking booking) {
-        if (!bookings.contains(booking)) {
-            bookings.add(booking);
-        }
+        bookings.add(booking); // A booking already in the set is not added twice
     }
 
     /**
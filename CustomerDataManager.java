@@ -4,11 +4,11 @@ import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Scanner;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Manages the loading and storing of customer data from a file.
@@ -16,13 +16,14 @@ import java.util.Scanner;
  */
 public class CustomerDataManager implements DataManager {
 
-    private final String RESOURCE = "./resources/data/customers.txt";
+    private final String RESOURCE = DataManager.DATA_DIRECTORY + "/customers.txt";
     private static final String SEPARATOR = "::"; // Ensures consistency in data formatting
 
     /**
      * Loads customer data from a file and populates the flight booking system.
-     * This method reads each line from the file, extracts customer details, 
-     * and adds them to the system.
+     * The file is parsed in chunks on every available core by a
+     * {@link ChunkedFileParser}, and the customers are then added to the system
+     * in the order they appear in the file.
      *
      * @param fbs The flight booking system to populate.
      * @throws IOException If an error occurs while reading the file.
@@ -30,46 +31,55 @@ public class CustomerDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
-        try (Scanner sc = new Scanner(new File(RESOURCE))) {
-            int line_idx = 1;
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine().trim(); // Trim the line to remove leading/trailing whitespace
-                if (line.isEmpty()) {
-                    continue; // Skip empty lines
-                }
+        List<Customer> customers = new ChunkedFileParser<>(CustomerDataManager::parseCustomer).parse(RESOURCE);
+        fbs.addLoadedCustomers(customers);
+    }
 
-                String[] properties = line.split(SEPARATOR, -1);
-                if (properties.length < 4) {
-                    throw new FlightBookingSystemException("Invalid customer data format on line " + line_idx);
-                }
+    /**
+     * Parses the fields of a single line of the customers file.
+     */
+    private static Customer parseCustomer(FieldTokenizer properties, int line_idx) throws FlightBookingSystemException {
+        if (properties.fieldCount() < 4) {
+            throw new FlightBookingSystemException("Invalid customer data format on line " + line_idx);
+        }
 
-                try {
-                    int id = Integer.parseInt(properties[0]);
-                    String name = properties[1];
-                    String phone = properties[2];
-                    String email = properties[3]; // Email is now properly separated
+        try {
+            int id = properties.getInt(0);
+            String name = properties.getString(1);
+            String phone = properties.getString(2);
+            String email = properties.getString(3); // Email is now properly separated
 
-                    Customer customer = new Customer(id, name, phone, email);
-                    fbs.addCustomer(customer);
-                } catch (NumberFormatException ex) {
-                    throw new FlightBookingSystemException("Unable to parse customer id " + properties[0] + " on line " + line_idx
-                        + "\nError: " + ex);
-                }
-                line_idx++;
-            }
+            return new Customer(id, name, phone, email);
+        } catch (NumberFormatException ex) {
+            throw new FlightBookingSystemException("Unable to parse customer id " + properties.getString(0) + " on line " + line_idx
+                + "\nError: " + ex);
         }
     }
 
     /**
      * Stores the current customer data into a file.
      * The customer details are written in a structured format using "::" as a separator.
+     * The new file is synced and then renamed over the old one.
      *
      * @param fbs The flight booking system containing the customer data.
      * @throws IOException If an error occurs while writing to the file.
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
+        GenerationCommit commit = new GenerationCommit();
+        stage(fbs, commit);
+        commit.commit();
+    }
+
+    /**
+     * Adds the customers file to a generation that is committed along with other files.
+     */
+    void stage(FlightBookingSystem fbs, GenerationCommit commit) {
+        commit.add(RESOURCE, path -> writeCustomers(fbs, path));
+    }
+
+    private void writeCustomers(FlightBookingSystem fbs, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path.toFile()))) {
             for (Customer customer : fbs.getCustomers()) {
                 out.print(customer.getId() + SEPARATOR);
                 out.print(customer.getName() + SEPARATOR);
@@ -77,6 +87,9 @@ public class CustomerDataManager implements DataManager {
                 out.print(customer.getEmail() + SEPARATOR); // Email is now properly separated
                 out.println();
             }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + path);
+            }
         }
     }
 }
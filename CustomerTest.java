@@ -40,6 +40,11 @@ public class CustomerTest {
         assertEquals(2, customer.getBookings().size());
         assertTrue(customer.getBookings().contains(booking1));
         assertTrue(customer.getBookings().contains(booking2));
+        assertEquals(2, customer.getBookingCount());
+        assertThrows(UnsupportedOperationException.class, () -> customer.getBookingsView().clear());
+
+        customer.removeBooking(booking1);
+        assertEquals(java.util.Set.of(booking2), customer.getBookingsView()); // The view is live
     }
 
     @Test
@@ -0,0 +1,381 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports flights, customers or passenger manifests to a CSV or JSON Lines file.
+ * <p>
+ * The matching flights or customers are first collected while the system holds
+ * their lock, which only copies references, so commands are held up for that copy
+ * rather than for the whole export. Each record is then formatted into a reused
+ * {@code StringBuilder} and encoded into a reused buffer that is written to a
+ * {@code FileChannel} whenever it fills up, with no lock held.
+ * <p>
+ * A file ending in {@code .csv} gets CSV with a header line; any other file gets
+ * one JSON object per line.
+ */
+public class DataExporter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The kinds of record that can be exported.
+     */
+    public enum Kind {
+        FLIGHTS, CUSTOMERS, MANIFESTS
+    }
+
+    /**
+     * Selects the flights to export. Any criterion left null matches every flight.
+     * Customers are selected by having a booking on a selected flight, and manifests
+     * list the bookings on the selected flights with their passengers.
+     */
+    public static final class Filter {
+
+        /** A filter that selects everything. */
+        public static final Filter ALL = new Filter(null, null, null, null, null);
+
+        private final String origin;
+        private final String destination;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Integer flightId;
+
+        /**
+         * Creates a filter.
+         *
+         * @param origin The origin to match, ignoring case, or null.
+         * @param destination The destination to match, ignoring case, or null.
+         * @param from The earliest departure date, inclusive, or null.
+         * @param to The latest departure date, inclusive, or null.
+         * @param flightId The ID of the only flight to match, or null.
+         */
+        public Filter(String origin, String destination, LocalDate from, LocalDate to, Integer flightId) {
+            this.origin = origin;
+            this.destination = destination;
+            this.from = from;
+            this.to = to;
+            this.flightId = flightId;
+        }
+
+        /**
+         * Checks whether a flight meets every criterion.
+         *
+         * @param flight The flight to check.
+         * @return True if the flight is selected.
+         */
+        public boolean matches(Flight flight) {
+            return (flightId == null || flight.getId() == flightId)
+                    && (origin == null || flight.getOrigin().equalsIgnoreCase(origin))
+                    && (destination == null || flight.getDestination().equalsIgnoreCase(destination))
+                    && (from == null || !flight.getDepartureDate().isBefore(from))
+                    && (to == null || !flight.getDepartureDate().isAfter(to));
+        }
+
+        private boolean selectsEverything() {
+            return origin == null && destination == null && from == null && to == null && flightId == null;
+        }
+    }
+
+    private final boolean csv;
+    private final StringBuilder record = new StringBuilder(256);
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private FileChannel channel;
+    private int count;
+
+    /**
+     * Creates an exporter that writes CSV or JSON Lines.
+     *
+     * @param csv True to write CSV, false to write JSON Lines.
+     */
+    public DataExporter(boolean csv) {
+        this.csv = csv;
+    }
+
+    /**
+     * Creates an exporter for the format the file name implies.
+     *
+     * @param path The path of the file to export to.
+     * @return An exporter writing CSV for a {@code .csv} file and JSON Lines otherwise.
+     */
+    public static DataExporter forPath(String path) {
+        return new DataExporter(path.toLowerCase().endsWith(".csv"));
+    }
+
+    /**
+     * Exports the selected records to a file, replacing anything already in it.
+     *
+     * @param fbs The flight booking system to export from.
+     * @param kind The kind of record to export.
+     * @param filter The flights to export, or whose customers or passengers to export.
+     * @param path The path of the file to write.
+     * @return The number of records written.
+     * @throws IOException If the file cannot be written.
+     * @throws FlightBookingSystemException If stored flights that may match cannot be loaded.
+     */
+    public int export(FlightBookingSystem fbs, Kind kind, Filter filter, String path)
+            throws IOException, FlightBookingSystemException {
+        loadMatchingFlights(fbs, filter);
+
+        count = 0;
+        buffer.clear();
+        encoder.reset();
+        try (FileChannel out = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel = out;
+            switch (kind) {
+                case FLIGHTS:
+                    exportFlights(fbs, filter);
+                    break;
+                case CUSTOMERS:
+                    exportCustomers(fbs, filter);
+                    break;
+                case MANIFESTS:
+                    exportManifests(fbs, filter);
+                    break;
+            }
+            flush();
+        } finally {
+            channel = null;
+        }
+        return count;
+    }
+
+    /**
+     * Loads any stored flight that is not loaded yet but may match the filter.
+     */
+    private static void loadMatchingFlights(FlightBookingSystem fbs, Filter filter) throws FlightBookingSystemException {
+        FlightBookingSystem.FlightSource source = fbs.getFlightSource();
+        if (source == null) {
+            return;
+        }
+        if (filter.flightId != null) {
+            source.loadFlight(fbs, filter.flightId);
+        } else if (filter.from != null && filter.to != null) {
+            // One day per month is enough, since months are what the sources load
+            for (LocalDate day = filter.from.withDayOfMonth(1); !day.isAfter(filter.to); day = day.plusMonths(1)) {
+                source.loadFlightsOn(fbs, day);
+            }
+        } else {
+            source.loadAllFlights(fbs);
+        }
+    }
+
+    private void exportFlights(FlightBookingSystem fbs, Filter filter) throws IOException {
+        if (csv) {
+            writeLine("id,flightNumber,origin,destination,departureDate,capacity,price,passengers");
+        }
+        for (Flight flight : matchingFlights(fbs, filter)) {
+            begin();
+            field("id", flight.getId());
+            field("flightNumber", flight.getFlightNumber());
+            field("origin", flight.getOrigin());
+            field("destination", flight.getDestination());
+            field("departureDate", flight.getDepartureDate().toString());
+            field("capacity", flight.getCapacity());
+            field("price", flight.getPrice());
+            field("passengers", flight.getPassengerCount());
+            end();
+        }
+    }
+
+    private void exportCustomers(FlightBookingSystem fbs, Filter filter) throws IOException {
+        if (csv) {
+            writeLine("id,name,phone,email,bookings");
+        }
+        List<Customer> customers = new ArrayList<>();
+        fbs.forEachCustomer(customer -> {
+            if (filter.selectsEverything() || hasBookingOn(customer, filter)) {
+                customers.add(customer);
+            }
+        });
+        for (Customer customer : customers) {
+            begin();
+            field("id", customer.getId());
+            field("name", customer.getName());
+            field("phone", customer.getPhone());
+            field("email", customer.getEmail());
+            field("bookings", customer.getBookingCount());
+            end();
+        }
+    }
+
+    private void exportManifests(FlightBookingSystem fbs, Filter filter) throws IOException {
+        if (csv) {
+            writeLine("flightId,flightNumber,departureDate,bookingId,customerId,name,phone,email");
+        }
+        for (Flight flight : matchingFlights(fbs, filter)) {
+            for (Booking booking : fbs.getBookingsForFlight(flight.getId())) {
+                Customer passenger = booking.getCustomer();
+                begin();
+                field("flightId", flight.getId());
+                field("flightNumber", flight.getFlightNumber());
+                field("departureDate", flight.getDepartureDate().toString());
+                field("bookingId", booking.getId());
+                field("customerId", passenger.getId());
+                field("name", passenger.getName());
+                field("phone", passenger.getPhone());
+                field("email", passenger.getEmail());
+                end();
+            }
+        }
+    }
+
+    /**
+     * Collects the loaded flights the filter selects, in ID order, holding the
+     * flights lock only while their references are copied.
+     */
+    private static List<Flight> matchingFlights(FlightBookingSystem fbs, Filter filter) {
+        List<Flight> flights = new ArrayList<>();
+        fbs.forEachFlight(flight -> {
+            if (filter.matches(flight)) {
+                flights.add(flight);
+            }
+        });
+        return flights;
+    }
+
+    private static boolean hasBookingOn(Customer customer, Filter filter) {
+        for (Booking booking : customer.getBookingsView()) {
+            if (filter.matches(booking.getOutboundFlight())
+                    || (booking.getReturnFlight() != null && filter.matches(booking.getReturnFlight()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void begin() {
+        record.setLength(0);
+        if (!csv) {
+            record.append('{');
+        }
+    }
+
+    private void field(String name, Object value) {
+        boolean first = record.length() == (csv ? 0 : 1);
+        if (!first) {
+            record.append(',');
+        }
+        if (!csv) {
+            appendJsonString(name);
+            record.append(':');
+        }
+        if (value instanceof String) {
+            if (csv) {
+                appendCsvString((String) value);
+            } else {
+                appendJsonString((String) value);
+            }
+        } else {
+            record.append(value);
+        }
+    }
+
+    private void end() throws IOException {
+        if (!csv) {
+            record.append('}');
+        }
+        record.append('\n');
+        encode(record);
+        count++;
+    }
+
+    private void writeLine(String line) throws IOException {
+        record.setLength(0);
+        record.append(line).append('\n');
+        encode(record);
+    }
+
+    /**
+     * Quotes a CSV value only when it holds a comma, a quote or a line break.
+     */
+    private void appendCsvString(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            record.append(value);
+            return;
+        }
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                record.append('"');
+            }
+            record.append(c);
+        }
+        record.append('"');
+    }
+
+    private void appendJsonString(String value) {
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    record.append("\\\"");
+                    break;
+                case '\\':
+                    record.append("\\\\");
+                    break;
+                case '\n':
+                    record.append("\\n");
+                    break;
+                case '\r':
+                    record.append("\\r");
+                    break;
+                case '\t':
+                    record.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        record.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        record.append(c);
+                    }
+            }
+        }
+        record.append('"');
+    }
+
+    /**
+     * Encodes the characters into the buffer, writing the buffer out whenever it fills up.
+     */
+    private void encode(CharSequence chars) throws IOException {
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, false);
+            if (result.isOverflow()) {
+                flush();
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
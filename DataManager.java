@@ -15,6 +15,12 @@ public interface DataManager {
      * Separator used to structure data in stored files.
      */
     public static final String SEPARATOR = "::";
+
+    /**
+     * Directory the data files are kept in. It can be changed with the
+     * {@code bookingsystem.data.dir} system property, for example to keep test data apart.
+     */
+    public static final String DATA_DIRECTORY = System.getProperty("bookingsystem.data.dir", "./resources/data");
     
     /**
      * Loads data into the flight booking system from an external source.
@@ -1,6 +1,6 @@
 package bcu.cmp5332.bookingsystem.commands;
 
-import bcu.cmp5332.bookingsystem.data.CustomerDataManager;
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
@@ -28,7 +28,7 @@ public class DeleteCustomer implements Command {
     /**
      * Executes the delete customer command.
      * The customer is removed from the system if they exist and have no active bookings.
-     * The updated customer data is then saved to file.
+     * The change is then saved in the background.
      *
      * @param flightBookingSystem The flight booking system where the customer exists.
      * @throws FlightBookingSystemException If the customer does not exist or cannot be deleted.
@@ -44,21 +44,20 @@ public class DeleteCustomer implements Command {
         }
 
         // Check if the customer has any bookings
-        if (!customer.getBookings().isEmpty()) {
+        if (customer.getBookingCount() > 0) {
             throw new FlightBookingSystemException("Customer #" + customerId + " has active bookings and cannot be deleted.");
         }
 
-        // Remove the customer from the system
-        flightBookingSystem.getCustomersMap().remove(customerId); 
-
-        // Save the updated customer data to customers.txt
+        // Fold the booking journal first, so it never refers to a deleted customer
         try {
-            CustomerDataManager customerDataManager = new CustomerDataManager();
-            customerDataManager.storeData(flightBookingSystem); 
+            FlightBookingSystemData.foldBookingJournal(flightBookingSystem);
         } catch (IOException ex) {
-            throw new FlightBookingSystemException("Failed to save customer data: " + ex.getMessage());
+            throw new FlightBookingSystemException("Failed to save booking data: " + ex.getMessage());
         }
 
+        // Remove the customer from the system
+        flightBookingSystem.removeCustomer(customerId);
+
         // Print success message in console
         System.out.println("Customer #" + customerId + " deleted successfully.");
 
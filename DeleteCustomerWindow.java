@@ -1,14 +1,12 @@
 package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.DeleteCustomer;
-import bcu.cmp5332.bookingsystem.data.CustomerDataManager;
 import bcu.cmp5332.bookingsystem.commands.Command;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -75,10 +73,6 @@ public class DeleteCustomerWindow extends JFrame implements ActionListener {
             Command deleteCustomer = new DeleteCustomer(customerId);
             deleteCustomer.execute(mw.getFlightBookingSystem());
 
-            // Save the updated data to customers.txt
-            CustomerDataManager customerDataManager = new CustomerDataManager();
-            customerDataManager.storeData(mw.getFlightBookingSystem()); // Save changes to file
-
             // Refresh the view with the list of customers
             mw.displayCustomers();
 
@@ -86,8 +80,6 @@ public class DeleteCustomerWindow extends JFrame implements ActionListener {
             this.setVisible(false);
         } catch (FlightBookingSystemException ex) {
             JOptionPane.showMessageDialog(this, ex, "Error", JOptionPane.ERROR_MESSAGE);
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Failed to save customer data: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Invalid Customer ID", "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -1,6 +1,6 @@
 package bcu.cmp5332.bookingsystem.commands;
 
-import bcu.cmp5332.bookingsystem.data.FlightDataManager;
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
@@ -28,7 +28,7 @@ public class DeleteFlight implements Command {
     /**
      * Executes the delete flight command.
      * The flight is removed from the system if it exists and has no passengers booked.
-     * The updated flight data is then saved to file.
+     * The change is then saved in the background.
      *
      * @param flightBookingSystem The flight booking system where the flight exists.
      * @throws FlightBookingSystemException If the flight does not exist or cannot be deleted.
@@ -44,21 +44,20 @@ public class DeleteFlight implements Command {
         }
 
         // Check if the flight has any bookings
-        if (!flight.getPassengers().isEmpty()) {
+        if (flight.getPassengerCount() > 0) {
             throw new FlightBookingSystemException("Flight #" + flightId + " has passengers and cannot be deleted.");
         }
 
-        // Remove the flight from the system
-        flightBookingSystem.getFlightsMap().remove(flightId); // Remove from the map
-
-        // Save the updated flight data to flights.txt
+        // Fold the booking journal first, so it never refers to a deleted flight
         try {
-            FlightDataManager flightDataManager = new FlightDataManager();
-            flightDataManager.storeData(flightBookingSystem); // Save changes to file
+            FlightBookingSystemData.foldBookingJournal(flightBookingSystem);
         } catch (IOException ex) {
-            throw new FlightBookingSystemException("Failed to save flight data: " + ex.getMessage());
+            throw new FlightBookingSystemException("Failed to save booking data: " + ex.getMessage());
         }
 
+        // Remove the flight from the system
+        flightBookingSystem.removeFlight(flightId);
+
         // Print success message in console
         System.out.println("Flight #" + flightId + " deleted successfully.");
         System.out.println("Origin: " + flight.getOrigin());
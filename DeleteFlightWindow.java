@@ -73,7 +73,7 @@ public class DeleteFlightWindow extends JFrame implements ActionListener {
             deleteFlight.execute(mw.getFlightBookingSystem());
 
             // Refresh the view with the list of flights
-            mw.displayFlights(mw.getFlightBookingSystem().getFlights()); // Pass the full list of flights
+            mw.displayFlights(); // Pass the full list of flights
 
             // Hide (close) the DeleteFlightWindow
             this.setVisible(false);
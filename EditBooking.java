@@ -3,6 +3,7 @@ package bcu.cmp5332.bookingsystem.commands;
 import java.io.IOException;
 import javax.swing.JOptionPane;
 import bcu.cmp5332.bookingsystem.data.BookingDataManager;
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Booking;
 import bcu.cmp5332.bookingsystem.model.Customer;
@@ -12,6 +13,7 @@ import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 /**
  * The {@code EditBooking} command allows a customer to modify their existing booking.
  * A customer can change their outbound or return flight, provided that seats are available.
+ * The booking is identified either by its ID or by the customer and the flight being changed.
  * A fixed rebooking fee is applied for the change.
  */
 public class EditBooking implements Command {
@@ -19,6 +21,7 @@ public class EditBooking implements Command {
     private final int customerId;
     private final int oldFlightId;
     private final int newFlightId;
+    private final int bookingId; // 0 when the booking is found by customer and flight
     private static final double REBOOKING_FEE = 30.0; // Fixed rebooking fee
 
     /**
@@ -29,9 +32,26 @@ public class EditBooking implements Command {
      * @param newFlightId The ID of the new flight the customer wants to book.
      */
     public EditBooking(int customerId, int oldFlightId, int newFlightId) {
+        this(customerId, oldFlightId, newFlightId, 0);
+    }
+
+    private EditBooking(int customerId, int oldFlightId, int newFlightId, int bookingId) {
         this.customerId = customerId;
         this.oldFlightId = oldFlightId;
         this.newFlightId = newFlightId;
+        this.bookingId = bookingId;
+    }
+
+    /**
+     * Creates a command to move one flight of the booking with the specified ID to another flight.
+     *
+     * @param bookingId The ID of the booking being modified.
+     * @param oldFlightId The ID of the outbound or return flight being changed.
+     * @param newFlightId The ID of the new flight.
+     * @return The command.
+     */
+    public static EditBooking forBooking(int bookingId, int oldFlightId, int newFlightId) {
+        return new EditBooking(0, oldFlightId, newFlightId, bookingId);
     }
 
     /**
@@ -44,26 +64,32 @@ public class EditBooking implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        // Get the customer by ID
-        Customer customer = flightBookingSystem.getCustomerByID(customerId);
-        if (customer == null) {
-            throw new FlightBookingSystemException("Customer with ID " + customerId + " not found.");
-        }
-
-        // Find the booking to edit
-        Booking bookingToEdit = null;
-        for (Booking booking : customer.getBookings()) {
-            if (booking.getOutboundFlight().getId() == oldFlightId
-                    || (booking.getReturnFlight() != null && booking.getReturnFlight().getId() == oldFlightId)) {
-                bookingToEdit = booking;
-                break;
+        Customer customer;
+        Booking bookingToEdit;
+        if (bookingId != 0) {
+            // Look the booking up directly by its ID
+            bookingToEdit = flightBookingSystem.getBookingByID(bookingId);
+            customer = bookingToEdit.getCustomer();
+            if (bookingToEdit.getOutboundFlight().getId() != oldFlightId && (bookingToEdit.getReturnFlight() == null
+                    || bookingToEdit.getReturnFlight().getId() != oldFlightId)) {
+                throw new FlightBookingSystemException(
+                        "Booking #" + bookingId + " does not include Flight #" + oldFlightId);
+            }
+        } else {
+            // Get the customer by ID
+            customer = flightBookingSystem.getCustomerByID(customerId);
+            if (customer == null) {
+                throw new FlightBookingSystemException("Customer with ID " + customerId + " not found.");
             }
-        }
 
-        // Check if the booking exists
-        if (bookingToEdit == null) {
-            throw new FlightBookingSystemException(
-                    "Customer #" + customerId + " does not have a booking for Flight #" + oldFlightId);
+            // Find the booking to edit
+            bookingToEdit = flightBookingSystem.findBooking(customer, oldFlightId);
+
+            // Check if the booking exists
+            if (bookingToEdit == null) {
+                throw new FlightBookingSystemException(
+                        "Customer #" + customerId + " does not have a booking for Flight #" + oldFlightId);
+            }
         }
 
         // Get outbound and return flights
@@ -77,34 +103,31 @@ public class EditBooking implements Command {
         }
 
         // Check if the new flight has available seats
-        if (newFlight.getPassengers().size() >= newFlight.getCapacity()) {
+        if (newFlight.getAvailableSeats() <= 0) {
             throw new FlightBookingSystemException("Flight #" + newFlightId + " is fully booked.");
         }
 
         // Apply the rebooking fee
         double totalRebookingCost = newFlight.getPrice() + REBOOKING_FEE;
 
-        // Determine whether to update outbound or return flight
-        if (bookingToEdit.getOutboundFlight().getId() == oldFlightId) {
-            bookingToEdit.setOutboundFlight(newFlight);
-        } else if (bookingToEdit.getReturnFlight() != null && bookingToEdit.getReturnFlight().getId() == oldFlightId) {
-            bookingToEdit.setReturnFlight(newFlight);
-        }
-
-        // Remove the customer from the old flight and add them to the new flight
-        oldFlight.getPassengers().remove(customer);
-        newFlight.addPassenger(customer);
-
-        // Save the updated booking data
+        // Record the change in the journal before applying it, once the new flight is on disk
         try {
+            FlightBookingSystemData.storeReferencedChanges(flightBookingSystem, customer.getId(), newFlightId);
             BookingDataManager bookingDataManager = new BookingDataManager();
-            bookingDataManager.storeData(flightBookingSystem);
+            bookingDataManager.journalRebooking(bookingToEdit, oldFlightId, newFlightId);
         } catch (IOException ex) {
             throw new FlightBookingSystemException("Failed to save booking data: " + ex.getMessage());
         }
 
+        // Update the outbound or return flight, whichever is being changed
+        flightBookingSystem.moveBooking(bookingToEdit, oldFlightId, newFlight);
+
+        // Remove the customer from the old flight and add them to the new flight
+        oldFlight.removePassenger(customer);
+        newFlight.addPassenger(customer);
+
         // Print success message in console
-        System.out.println("Booking updated successfully.");
+        System.out.println("Booking #" + bookingToEdit.getId() + " updated successfully.");
         System.out.println("Customer: " + customer.getName());
         System.out.println("Old Flight: " + oldFlight.getFlightNumber() + " (" + oldFlight.getOrigin() + " → "
                 + oldFlight.getDestination() + ")");
@@ -81,7 +81,7 @@ public class EditBookingWindow extends JFrame implements ActionListener {
             editBooking.execute(mw.getFlightBookingSystem());
 
             // Refresh the view with the list of flights
-            mw.displayFlights(mw.getFlightBookingSystem().getFlights()); // Refresh flight);
+            mw.displayFlights(); // Refresh flights list
 
             // Hide (close) the EditBookingWindow
             this.setVisible(false);
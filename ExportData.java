@@ -0,0 +1,50 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.data.DataExporter;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.io.IOException;
+
+/**
+ * The {@code ExportData} command writes flights, customers or passenger manifests
+ * to a CSV or JSON Lines file for use by other systems. The records can be limited
+ * to a route, a range of departure dates or a single flight.
+ */
+public class ExportData implements Command {
+
+    private final DataExporter.Kind kind;
+    private final DataExporter.Filter filter;
+    private final String path;
+
+    /**
+     * Creates a command to export records to a file.
+     *
+     * @param kind The kind of record to export.
+     * @param filter The flights to export, or whose customers or passengers to export.
+     * @param path The path of the file to write; a {@code .csv} file gets CSV and any other JSON Lines.
+     */
+    public ExportData(DataExporter.Kind kind, DataExporter.Filter filter, String path) {
+        this.kind = kind;
+        this.filter = filter;
+        this.path = path;
+    }
+
+    /**
+     * Executes the export command and prints the number of records written.
+     *
+     * @param flightBookingSystem The flight booking system instance.
+     * @throws FlightBookingSystemException If the file cannot be written.
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        int exported;
+        try {
+            exported = DataExporter.forPath(path).export(flightBookingSystem, kind, filter, path);
+        } catch (IOException ex) {
+            throw new FlightBookingSystemException("Failed to export to " + path + ": " + ex.getMessage());
+        }
+
+        System.out.println(exported + " record(s) exported to " + path + ".");
+    }
+}
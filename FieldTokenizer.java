@@ -0,0 +1,280 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Splits a single line of a data file into its "::" separated fields without
+ * using regular expressions. The tokenizer only records where each field starts
+ * and ends, and numbers and dates are decoded straight from the underlying bytes,
+ * so a line can be parsed without allocating anything but the strings it holds.
+ * <p>
+ * A tokenizer for {@link #CSV} lines splits on commas instead, and a field may be
+ * enclosed in double quotes to hold commas, with a doubled quote standing for a
+ * quote inside it.
+ * <p>
+ * A tokenizer is reused for every line of a chunk and must not be shared between threads.
+ */
+public final class FieldTokenizer {
+
+    /**
+     * The separator of the data files.
+     */
+    public static final String COLONS = "::";
+
+    /**
+     * The separator of comma separated values, which also enables quoted fields.
+     */
+    public static final String CSV = ",";
+
+    private static final byte QUOTE = '"';
+
+    // Powers of ten that are exactly representable as a double
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private ByteBuffer buffer;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] quoted = new boolean[16];
+    private int count;
+    private byte[] scratch = new byte[64];
+    private final byte[] separator;
+    private final boolean quoting;
+
+    /**
+     * Creates a tokenizer for "::" separated lines.
+     */
+    public FieldTokenizer() {
+        this(COLONS);
+    }
+
+    /**
+     * Creates a tokenizer for lines with the given separator.
+     *
+     * @param separator {@link #COLONS}, {@link #CSV} or any other separator.
+     */
+    public FieldTokenizer(String separator) {
+        this.separator = separator.getBytes(StandardCharsets.UTF_8);
+        this.quoting = CSV.equals(separator);
+    }
+
+    /**
+     * Points the tokenizer at a line and splits it into fields, the same way
+     * {@code line.split(separator, -1)} would for a line without quotes.
+     *
+     * @param buffer The buffer holding the line.
+     * @param start The index of the first byte of the line.
+     * @param end The index just past the last byte of the line.
+     */
+    void reset(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        count = 0;
+        int i = start;
+        while (true) {
+            if (quoting && i < end && buffer.get(i) == QUOTE) {
+                int close = closingQuote(i + 1, end);
+                addField(i + 1, close, true);
+                i = Math.min(close + 1, end);
+                while (i < end && !isSeparator(i, end)) {
+                    i++; // Anything between the closing quote and the separator is dropped
+                }
+            } else {
+                int fieldEnd = i;
+                while (fieldEnd < end && !isSeparator(fieldEnd, end)) {
+                    fieldEnd++;
+                }
+                addField(i, fieldEnd, false);
+                i = fieldEnd;
+            }
+            if (i >= end) {
+                return;
+            }
+            i += separator.length; // A trailing separator is followed by one empty field
+        }
+    }
+
+    private boolean isSeparator(int i, int end) {
+        if (i + separator.length > end) {
+            return false;
+        }
+        for (int j = 0; j < separator.length; j++) {
+            if (buffer.get(i + j) != separator[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the quote that closes a quoted field, skipping doubled quotes.
+     * An unterminated field runs to the end of the line.
+     */
+    private int closingQuote(int i, int end) {
+        while (i < end) {
+            if (buffer.get(i) == QUOTE) {
+                if (i + 1 < end && buffer.get(i + 1) == QUOTE) {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        return end;
+    }
+
+    /**
+     * Gets the number of fields on the line, including an empty field after a
+     * trailing separator.
+     *
+     * @return The number of fields.
+     */
+    public int fieldCount() {
+        return count;
+    }
+
+    /**
+     * Decodes a field as text.
+     *
+     * @param index The index of the field.
+     * @return The field as a string.
+     */
+    public String getString(int index) {
+        int start = starts[index];
+        int length = ends[index] - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(start + i);
+        }
+        String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        return quoted[index] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Decodes a field as an integer.
+     *
+     * @param index The index of the field.
+     * @return The value of the field.
+     * @throws NumberFormatException If the field is not a valid integer.
+     */
+    public int getInt(int index) {
+        int i = starts[index];
+        int end = ends[index];
+        boolean negative = i < end && buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end || end - i > 9) {
+            return Integer.parseInt(getString(index)); // Empty, signed or possibly overflowing
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(getString(index)); // Reports the error the usual way
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodes a field as a double. Plain decimals such as "129.99" are converted
+     * directly, which is exact because both the digits and the power of ten fit in a
+     * double; anything else is handed to {@link Double#parseDouble(String)}.
+     *
+     * @param index The index of the field.
+     * @return The value of the field.
+     * @throws NumberFormatException If the field is not a valid number.
+     */
+    public double getDouble(int index) {
+        int i = starts[index];
+        int end = ends[index];
+        boolean negative = i < end && buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || ++digits > 15) {
+                return Double.parseDouble(getString(index));
+            }
+            mantissa = mantissa * 10 + digit;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (digits == 0) {
+            return Double.parseDouble(getString(index));
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodes a field in the ISO "yyyy-MM-dd" format as a date.
+     *
+     * @param index The index of the field.
+     * @return The date held in the field.
+     * @throws java.time.format.DateTimeParseException If the field is not a valid date.
+     */
+    public LocalDate getDate(int index) {
+        int i = starts[index];
+        if (ends[index] - i == 10 && buffer.get(i + 4) == '-' && buffer.get(i + 7) == '-') {
+            int year = digits(i, 4);
+            int month = digits(i + 5, 2);
+            int day = digits(i + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException ex) {
+                    // Out of range, let the parser below report it
+                }
+            }
+        }
+        return LocalDate.parse(getString(index));
+    }
+
+    /**
+     * Reads a run of decimal digits, or returns -1 if any byte is not a digit.
+     */
+    private int digits(int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private void addField(int start, int end, boolean isQuoted) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            quoted = Arrays.copyOf(quoted, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        quoted[count] = isQuoted;
+        count++;
+    }
+}
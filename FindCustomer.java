@@ -0,0 +1,54 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.util.List;
+
+/**
+ * The {@code FindCustomer} command finds customers without their ID. Text containing
+ * an {@code @} is looked up as an email address, text made of digits as a phone
+ * number, and anything else as the start of a name or of a word in it.
+ */
+public class FindCustomer implements Command {
+
+    private static final int MAX_RESULTS = 50;
+
+    private final String query;
+
+    /**
+     * Creates a command to find customers matching the given text.
+     *
+     * @param query An email address, a phone number, or the start of a name.
+     */
+    public FindCustomer(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Executes the find customer command and prints a summary of each customer found.
+     *
+     * @param flightBookingSystem The flight booking system instance.
+     * @throws FlightBookingSystemException If no customer matches.
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        List<Customer> found;
+        if (query.contains("@")) {
+            found = flightBookingSystem.findCustomersByEmail(query);
+        } else if (query.matches("[+\\d\\s\\-().]+")) {
+            found = flightBookingSystem.findCustomersByPhone(query);
+        } else {
+            found = flightBookingSystem.findCustomersByName(query, MAX_RESULTS);
+        }
+
+        if (found.isEmpty()) {
+            throw new FlightBookingSystemException("No customers found matching \"" + query + "\".");
+        }
+        for (Customer customer : found) {
+            System.out.println(customer.getDetailsShort());
+        }
+        System.out.println(found.size() + " customer(s) found.");
+    }
+}
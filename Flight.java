@@ -4,6 +4,7 @@ import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -11,6 +12,7 @@ import java.util.Set;
 /**
  * Represents a flight in the booking system. Each flight has a unique ID, flight number, 
  * origin, destination, departure date, capacity, price, and a list of passengers.
+ * The number of passengers is kept in a counter, so seat checks do not copy the list.
  */
 public class Flight {
 
@@ -22,6 +24,8 @@ public class Flight {
     private int capacity;
     private double price;
     private final Set<Customer> passengers;
+    private final Set<Customer> passengersView; // Read-only view of passengers
+    private volatile int passengerCount; // Changed only while holding the flight's lock
 
     /**
      * Creates a new flight with the specified details.
@@ -43,6 +47,7 @@ public class Flight {
         this.capacity = capacity;
         this.price = price;
         this.passengers = new HashSet<>();
+        this.passengersView = Collections.unmodifiableSet(passengers);
     }
 
     /**
@@ -176,10 +181,39 @@ public class Flight {
      *
      * @return A list of passengers.
      */
-    public List<Customer> getPassengers() {
+    public synchronized List<Customer> getPassengers() {
         return new ArrayList<>(passengers);
     }
 
+    /**
+     * Gets a read-only view of the passengers, which changes as passengers are added
+     * and removed. Unlike {@link #getPassengers()} nothing is copied, so the view
+     * should only be iterated while no other thread is booking this flight.
+     *
+     * @return An unmodifiable view of the passengers.
+     */
+    public Set<Customer> getPassengerView() {
+        return passengersView;
+    }
+
+    /**
+     * Gets the number of passengers booked on this flight without copying them.
+     *
+     * @return The number of passengers.
+     */
+    public int getPassengerCount() {
+        return passengerCount;
+    }
+
+    /**
+     * Gets the number of seats that are not booked yet.
+     *
+     * @return The capacity minus the number of passengers.
+     */
+    public int getAvailableSeats() {
+        return capacity - passengerCount;
+    }
+
     /**
      * Returns a short summary of the flight details.
      *
@@ -196,7 +230,7 @@ public class Flight {
      *
      * @return A detailed summary of the flight.
      */
-    public String getDetailsLong() {
+    public synchronized String getDetailsLong() {
         StringBuilder details = new StringBuilder();
         details.append("Flight Details:\n");
         details.append("ID: ").append(id).append("\n");
@@ -219,11 +253,13 @@ public class Flight {
      * @param passenger The customer to be added to the flight.
      * @throws FlightBookingSystemException If the flight is already fully booked.
      */
-    public void addPassenger(Customer passenger) throws FlightBookingSystemException {
-        if (passengers.size() >= capacity) {
+    public synchronized void addPassenger(Customer passenger) throws FlightBookingSystemException {
+        if (passengerCount >= capacity) {
             throw new FlightBookingSystemException("Flight #" + id + " is fully booked. Cannot add passenger.");
         }
-        passengers.add(passenger);
+        if (passengers.add(passenger)) {
+            passengerCount++;
+        }
     }
 
     /**
@@ -231,7 +267,9 @@ public class Flight {
      *
      * @param passenger The customer to be removed from the flight.
      */
-    public void removePassenger(Customer passenger) {
-        passengers.remove(passenger);
+    public synchronized void removePassenger(Customer passenger) {
+        if (passengers.remove(passenger)) {
+            passengerCount--;
+        }
     }
 }
@@ -0,0 +1,366 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves departed flights and their bookings out of the live system into a
+ * compressed archive, so the system only holds the flights that still matter.
+ * <p>
+ * Each run writes one gzip file of "::" separated {@code FLIGHT} and {@code BOOKING}
+ * records, and adds a line for it to the archive index, together as one
+ * {@link GenerationCommit}. The archived flights and bookings are then removed
+ * from the system and the remaining data is stored in one more generation.
+ * A crash between the two leaves the records in both places; the archive is
+ * read newest first, so the copy archived again by the next run wins.
+ * <p>
+ * A flight is only archived once it has departed and every booking on it is over,
+ * and a booking only once all of its flights are archived, so nothing left in the
+ * system ever refers to an archived record. Archived records are read back by
+ * scanning the archive files, which is slow, but only needed for history.
+ */
+public class FlightArchive {
+
+    private static final String DIRECTORY = DataManager.DATA_DIRECTORY + "/archive";
+    private static final String INDEX = DIRECTORY + "/archive.index";
+    private static final String SEPARATOR = "::";
+    private static final String FLIGHT = "FLIGHT";
+    private static final String BOOKING = "BOOKING";
+
+    /**
+     * Moves every flight that departed before the system date, and the bookings
+     * that only use such flights, to the archive.
+     *
+     * @param fbs The flight booking system to archive flights from.
+     * @return The number of flights archived.
+     * @throws IOException If the archive or the data files cannot be written.
+     * @throws FlightBookingSystemException If stored flights cannot be loaded.
+     */
+    public int archiveDeparted(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        LocalDate today = fbs.getSystemDate();
+        synchronized (BookingDataManager.SNAPSHOT_LOCK) { // Keeps stores from writing a half-archived system
+            Set<Flight> flights = Collections.newSetFromMap(new IdentityHashMap<>());
+            flights.addAll(fbs.getFlightsDepartingBefore(today)); // Leaves partitions of later months alone
+
+            // Keep a flight while any booking on it cannot go, until nothing else changes
+            List<Booking> bookings = new ArrayList<>();
+            for (Customer customer : fbs.getCustomers()) {
+                bookings.addAll(customer.getBookings());
+            }
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (Booking booking : bookings) {
+                    if (!isArchivable(booking, flights)) {
+                        changed |= flights.remove(booking.getOutboundFlight());
+                        if (booking.getReturnFlight() != null) {
+                            changed |= flights.remove(booking.getReturnFlight());
+                        }
+                    }
+                }
+            }
+            bookings.removeIf(booking -> !isArchivable(booking, flights));
+            if (flights.isEmpty()) {
+                return 0;
+            }
+
+            writeArchive(new ArrayList<>(flights), bookings, today);
+
+            // Remove them from the live system, journaling the bookings like a cancellation
+            BookingDataManager bookingDataManager = new BookingDataManager();
+            for (Booking booking : bookings) {
+                Customer customer = booking.getCustomer();
+                bookingDataManager.journalCancellation(booking);
+                fbs.removeBooking(booking);
+                customer.removeBooking(booking);
+                booking.getOutboundFlight().removePassenger(customer);
+                if (booking.getReturnFlight() != null) {
+                    booking.getReturnFlight().removePassenger(customer);
+                }
+            }
+            for (Flight flight : flights) {
+                fbs.removeFlight(flight.getId());
+                fbs.advanceFlightIds(flight.getId());
+            }
+            FlightBookingSystemData.store(fbs); // Flights and bookings go in the same generation
+            return flights.size();
+        }
+    }
+
+    /**
+     * Finds an archived flight, with the passengers that are still customers.
+     *
+     * @param fbs The flight booking system the passengers are looked up in.
+     * @param id The ID of the flight.
+     * @return The archived flight, or null if no flight with that ID was archived.
+     * @throws IOException If the archive cannot be read.
+     * @throws FlightBookingSystemException If the archive is invalid.
+     */
+    public Flight findFlight(FlightBookingSystem fbs, int id) throws IOException, FlightBookingSystemException {
+        for (IndexEntry entry : readIndex()) {
+            if (entry.highestFlightId < id) {
+                continue; // Every flight in the file has a lower ID
+            }
+            ArchiveFile file = readArchive(entry.file);
+            Flight flight = file.flights.get(id);
+            if (flight != null) {
+                for (String[] booking : file.bookings) {
+                    Customer passenger = isBookingFor(booking, id) ? fbs.findCustomer(Integer.parseInt(booking[1])) : null;
+                    if (passenger != null) { // Customers deleted since the flight was archived are left out
+                        flight.addPassenger(passenger);
+                    }
+                }
+                return flight;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the archived bookings of a customer.
+     *
+     * @param customer The customer whose bookings are wanted.
+     * @return The archived bookings, newest archive first.
+     * @throws IOException If the archive cannot be read.
+     * @throws FlightBookingSystemException If the archive is invalid.
+     */
+    public List<Booking> findBookings(Customer customer) throws IOException, FlightBookingSystemException {
+        List<Booking> found = new ArrayList<>();
+        for (IndexEntry entry : readIndex()) {
+            ArchiveFile file = readArchive(entry.file);
+            for (String[] booking : file.bookings) {
+                if (Integer.parseInt(booking[1]) == customer.getId()) {
+                    Flight outboundFlight = file.flights.get(Integer.parseInt(booking[2]));
+                    Flight returnFlight = "NULL".equals(booking[3]) ? null
+                            : file.flights.get(Integer.parseInt(booking[3]));
+                    int bookingId = booking.length > 6 && !booking[5].isEmpty() ? Integer.parseInt(booking[5]) : 0;
+                    found.add(new Booking(bookingId, customer, outboundFlight, returnFlight,
+                            LocalDate.parse(booking[4])));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the highest ID of any archived flight, so the IDs are never reused.
+     *
+     * @return The highest archived flight ID, or 0 if nothing has been archived.
+     * @throws IOException If the archive index cannot be read.
+     * @throws FlightBookingSystemException If the archive index is invalid.
+     */
+    public int getHighestFlightId() throws IOException, FlightBookingSystemException {
+        int highest = 0;
+        for (IndexEntry entry : readIndex()) {
+            highest = Math.max(highest, entry.highestFlightId);
+        }
+        return highest;
+    }
+
+    /**
+     * Gets the highest ID of any archived booking, so the IDs are never reused.
+     *
+     * @return The highest archived booking ID, or 0 if no booking has been archived.
+     * @throws IOException If the archive index cannot be read.
+     * @throws FlightBookingSystemException If the archive index is invalid.
+     */
+    public int getHighestBookingId() throws IOException, FlightBookingSystemException {
+        int highest = 0;
+        for (IndexEntry entry : readIndex()) {
+            highest = Math.max(highest, entry.highestBookingId);
+        }
+        return highest;
+    }
+
+    private static boolean isArchivable(Booking booking, Set<Flight> flights) {
+        return flights.contains(booking.getOutboundFlight())
+                && (booking.getReturnFlight() == null || flights.contains(booking.getReturnFlight()));
+    }
+
+    private static boolean isBookingFor(String[] booking, int flightId) {
+        return booking[2].equals(String.valueOf(flightId)) || booking[3].equals(String.valueOf(flightId));
+    }
+
+    /**
+     * Writes the archive file of one run and its index line as one generation.
+     */
+    private void writeArchive(List<Flight> flights, List<Booking> bookings, LocalDate archivedOn)
+            throws IOException, FlightBookingSystemException {
+        Path directory = Paths.get(DIRECTORY);
+        Files.createDirectories(directory);
+        GenerationCommit.removeLeftovers(directory);
+
+        List<IndexEntry> index = readIndex();
+        int highestFlightId = 0;
+        for (Flight flight : flights) {
+            highestFlightId = Math.max(highestFlightId, flight.getId());
+        }
+        int highestBookingId = 0;
+        for (Booking booking : bookings) {
+            highestBookingId = Math.max(highestBookingId, booking.getId());
+        }
+        String file = "archive-" + (index.size() + 1) + ".txt.gz";
+        index.add(0, new IndexEntry(file, highestFlightId, flights.size(), bookings.size(), archivedOn,
+                highestBookingId));
+
+        GenerationCommit commit = new GenerationCommit();
+        commit.add(DIRECTORY + "/" + file, path -> writeRecords(flights, bookings, path));
+        commit.add(INDEX, path -> writeIndex(index, path));
+        commit.commit();
+    }
+
+    private static void writeRecords(List<Flight> flights, List<Booking> bookings, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(path.toFile())), StandardCharsets.UTF_8))) {
+            for (Flight flight : flights) {
+                out.print(FLIGHT + SEPARATOR);
+                out.print(flight.getId() + SEPARATOR);
+                out.print(flight.getFlightNumber() + SEPARATOR);
+                out.print(flight.getOrigin() + SEPARATOR);
+                out.print(flight.getDestination() + SEPARATOR);
+                out.print(flight.getDepartureDate() + SEPARATOR);
+                out.print(flight.getCapacity() + SEPARATOR);
+                out.print(flight.getPrice() + SEPARATOR);
+                out.println();
+            }
+            for (Booking booking : bookings) {
+                out.print(BOOKING + SEPARATOR);
+                out.print(booking.getCustomer().getId() + SEPARATOR);
+                out.print(booking.getOutboundFlight().getId() + SEPARATOR);
+                out.print((booking.getReturnFlight() != null ? booking.getReturnFlight().getId() : "NULL") + SEPARATOR);
+                out.print(booking.getBookingDate() + SEPARATOR);
+                out.print(booking.getId() + SEPARATOR);
+                out.println();
+            }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + path);
+            }
+        }
+    }
+
+    private static void writeIndex(List<IndexEntry> index, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            for (IndexEntry entry : index) {
+                out.println(entry.file + SEPARATOR + entry.highestFlightId + SEPARATOR + entry.flightCount
+                        + SEPARATOR + entry.bookingCount + SEPARATOR + entry.archivedOn + SEPARATOR
+                        + entry.highestBookingId + SEPARATOR);
+            }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + path);
+            }
+        }
+    }
+
+    /**
+     * Reads the archive index, newest archive first.
+     */
+    private List<IndexEntry> readIndex() throws IOException, FlightBookingSystemException {
+        List<IndexEntry> index = new ArrayList<>();
+        if (!Files.exists(Paths.get(INDEX))) {
+            return index;
+        }
+        int line_idx = 0;
+        for (String line : Files.readAllLines(Paths.get(INDEX))) {
+            line_idx++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] properties = line.split(SEPARATOR, -1);
+            try {
+                index.add(new IndexEntry(properties[0], Integer.parseInt(properties[1]),
+                        Integer.parseInt(properties[2]), Integer.parseInt(properties[3]),
+                        LocalDate.parse(properties[4]),
+                        properties.length > 6 ? Integer.parseInt(properties[5]) : 0)); // Older runs had no booking IDs
+            } catch (NumberFormatException | DateTimeParseException | ArrayIndexOutOfBoundsException ex) {
+                throw new FlightBookingSystemException("Invalid archive index entry on line " + line_idx);
+            }
+        }
+        return index;
+    }
+
+    private ArchiveFile readArchive(String name) throws IOException, FlightBookingSystemException {
+        ArchiveFile file = new ArchiveFile();
+        Path path = Paths.get(DIRECTORY, name);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+            int line_idx = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                line_idx++;
+                String[] properties = line.split(SEPARATOR, -1);
+                try {
+                    if (FLIGHT.equals(properties[0])) {
+                        int id = Integer.parseInt(properties[1]);
+                        file.flights.put(id, new Flight(id, properties[2], properties[3], properties[4],
+                                LocalDate.parse(properties[5]), Integer.parseInt(properties[6]),
+                                Double.parseDouble(properties[7])));
+                    } else if (BOOKING.equals(properties[0]) && properties.length > 5) {
+                        file.bookings.add(properties);
+                    } else {
+                        throw new FlightBookingSystemException("Invalid archive record on line " + line_idx
+                                + " of " + name);
+                    }
+                } catch (NumberFormatException | DateTimeParseException | ArrayIndexOutOfBoundsException ex) {
+                    throw new FlightBookingSystemException("Invalid archive record on line " + line_idx
+                            + " of " + name);
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * One line of the archive index, describing the file written by one run.
+     */
+    private static final class IndexEntry {
+        final String file;
+        final int highestFlightId;
+        final int flightCount;
+        final int bookingCount;
+        final LocalDate archivedOn;
+        final int highestBookingId;
+
+        IndexEntry(String file, int highestFlightId, int flightCount, int bookingCount, LocalDate archivedOn,
+                int highestBookingId) {
+            this.file = file;
+            this.highestFlightId = highestFlightId;
+            this.flightCount = flightCount;
+            this.bookingCount = bookingCount;
+            this.archivedOn = archivedOn;
+            this.highestBookingId = highestBookingId;
+        }
+    }
+
+    /**
+     * The records of one archive file. Bookings are kept as their fields, since
+     * their customers may no longer exist.
+     */
+    private static final class ArchiveFile {
+        final Map<Integer, Flight> flights = new HashMap<>();
+        final List<String[]> bookings = new ArrayList<>();
+    }
+}
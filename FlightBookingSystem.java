@@ -3,17 +3,137 @@ package bcu.cmp5332.bookingsystem.model;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * The {@code FlightBookingSystem} class manages flights and customers in the system.
  * It provides methods for adding, retrieving, and managing flights and customers.
+ * <p>
+ * The system also tracks which kinds of data have changed since they were last
+ * stored, and which flights and customers, so only changed data has to be written back.
+ * Booking changes are not tracked here, since every one of them is journaled.
+ * Bookings are indexed by ID and by the flights they include, so the bookings of
+ * a flight are found without looking at every customer.
+ * Registered {@link ChangeListener}s are told about every change, so it can be
+ * written out in the background while commands carry on.
+ * <p>
+ * Flights, customers and the change tracking each have their own lock, so the
+ * data can be stored from another thread while commands change it.
+ * <p>
+ * Flights are also indexed by flight number and departure date, which keeps that
+ * pair unique in constant time per flight added, and by origin, destination and
+ * departure date, so searches by route and date range do not scan every flight.
+ * Flight numbers and airport names are indexed by their three-character runs, so
+ * searches for part of them only look at flights that may match. A departure
+ * ordered index lists upcoming flights without sorting.
+ * <p>
+ * Customers are indexed by normalized phone number and email address, and by the
+ * start of every word of their name, so they can be found without their ID.
+ * <p>
+ * Flights and customers are stored by ID in {@link IntObjectMap}s, which keep their
+ * keys unboxed and still list them in ID order. New IDs come from atomic
+ * sequences that every stored, loaded or archived ID advances, so allocating one
+ * takes constant time and needs no lock.
  */
 public class FlightBookingSystem {
 
-    private final Map<Integer, Customer> customers = new TreeMap<>();
-    private final Map<Integer, Flight> flights = new TreeMap<>();
+    /**
+     * The kinds of data whose changes are tracked.
+     */
+    public enum EntityType {
+        FLIGHTS,
+        CUSTOMERS
+    }
+
+    /**
+     * Receives an event whenever data in the system changes.
+     */
+    public interface ChangeListener {
+
+        /**
+         * Called after data has changed. Listeners should return quickly, since
+         * they run on the thread that made the change.
+         *
+         * @param type The kind of data that changed.
+         */
+        void dataChanged(EntityType type);
+    }
+
+    /**
+     * Supplies flights that are stored but have not been loaded yet, so storage
+     * can load only some flights up front and the rest when they are needed.
+     */
+    public interface FlightSource {
+
+        /**
+         * Loads the stored flight with the given ID, if it is not loaded yet.
+         *
+         * @param fbs The system to add the flight to.
+         * @param id The ID of the flight that is needed.
+         * @throws FlightBookingSystemException If the stored flights cannot be read.
+         */
+        void loadFlight(FlightBookingSystem fbs, int id) throws FlightBookingSystemException;
+
+        /**
+         * Loads every stored flight departing on the given date that is not loaded yet.
+         *
+         * @param fbs The system to add the flights to.
+         * @param date The departure date of the flights that are needed.
+         * @throws FlightBookingSystemException If the stored flights cannot be read.
+         */
+        void loadFlightsOn(FlightBookingSystem fbs, LocalDate date) throws FlightBookingSystemException;
+
+        /**
+         * Loads every stored flight that may depart before the given date and is not loaded yet.
+         *
+         * @param fbs The system to add the flights to.
+         * @param date The date the flights that are needed depart before.
+         * @throws FlightBookingSystemException If the stored flights cannot be read.
+         */
+        void loadFlightsBefore(FlightBookingSystem fbs, LocalDate date) throws FlightBookingSystemException;
+
+        /**
+         * Loads every stored flight that is not loaded yet.
+         *
+         * @param fbs The system to add the flights to.
+         * @throws FlightBookingSystemException If the stored flights cannot be read.
+         */
+        void loadAllFlights(FlightBookingSystem fbs) throws FlightBookingSystemException;
+
+        /**
+         * Gets the highest ID of any stored flight, whether it is loaded or not.
+         *
+         * @return The highest stored flight ID, or 0 if there are none.
+         */
+        int getHighestFlightId();
+    }
+
+    private final IntObjectMap<Customer> customers = new IntObjectMap<>(true);
+    private final IntObjectMap<Flight> flights = new IntObjectMap<>(true);
+    private final Map<String, Flight> flightsByNumberAndDate = new HashMap<>(); // Guarded by flights
+    private final Map<String, Map<String, NavigableMap<LocalDate, List<Flight>>>> flightsByRoute
+            = new HashMap<>(); // Origin, then destination, then departure date; guarded by flights
+    private final TreeMap<LocalDate, List<Flight>> flightsByDate = new TreeMap<>(); // Guarded by flights
+    private final TrigramIndex<Flight> flightNumberIndex = new TrigramIndex<>(); // Guarded by flights
+    private final TrigramIndex<String> airportIndex = new TrigramIndex<>(); // Guarded by flights
+    private final Map<String, Integer> airportUses = new HashMap<>(); // Flights per airport; guarded by flights
+    private final Map<Integer, Booking> bookings = new HashMap<>(); // Index of every customer's bookings
+    private final Map<Integer, Set<Booking>> bookingsByFlight = new HashMap<>(); // Guarded by bookings
+    private int highestBookingId; // Guarded by bookings
     private List<Flight> filteredFlights; // Stores filtered flights based on criteria
 
+    private final Set<EntityType> dirty = EnumSet.noneOf(EntityType.class); // Guards changedIds too
+    private final Map<EntityType, Set<Integer>> changedIds = new EnumMap<>(EntityType.class);
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile FlightSource flightSource; // Null when every flight is loaded up front
+    private final IdSequence flightIds = new IdSequence(); // Past every flight ID ever used
+    private final IdSequence customerIds = new IdSequence(); // Past every customer ID ever used
+    private final Map<String, List<Customer>> customersByPhone = new HashMap<>(); // Guarded by customers
+    private final Map<String, List<Customer>> customersByEmail = new HashMap<>(); // Guarded by customers
+    private final PrefixTrie<Customer> customersByName = new PrefixTrie<>(); // Guarded by customers
+
     /**
      * Gets the current system date.
      *
@@ -24,15 +144,178 @@ public class FlightBookingSystem {
     }
 
     /**
-     * Retrieves a list of all flights in the system.
+     * Retrieves a list of all flights in the system. When flights are loaded lazily
+     * this only holds the flights loaded so far, which always includes every flight
+     * that has not departed yet; use {@link #getAllFlights()} for historical queries.
+     * The list is a copy, so it can be used while other threads change flights; use
+     * {@link #forEachFlight(Consumer)} to avoid the copy.
      *
      * @return An unmodifiable list of flights.
      */
     public List<Flight> getFlights() {
-        List<Flight> out = new ArrayList<>(flights.values());
+        List<Flight> out;
+        synchronized (flights) {
+            out = new ArrayList<>(flights.values());
+        }
         return Collections.unmodifiableList(out);
     }
 
+    /**
+     * Passes every loaded flight, in ID order, to an action while holding the flights
+     * lock, so nothing is copied and no other thread can change the flights meanwhile.
+     * The action should be quick and must not add or remove flights.
+     *
+     * @param action The action to perform on each flight.
+     */
+    public void forEachFlight(Consumer<? super Flight> action) {
+        synchronized (flights) {
+            flights.values().forEach(action);
+        }
+    }
+
+    /**
+     * Gets the number of loaded flights.
+     *
+     * @return The number of flights.
+     */
+    public int getFlightCount() {
+        synchronized (flights) {
+            return flights.size();
+        }
+    }
+
+    /**
+     * Retrieves a list of every flight, first loading any stored flight that has
+     * not been loaded yet.
+     *
+     * @return An unmodifiable list of flights.
+     * @throws FlightBookingSystemException If the stored flights cannot be read.
+     */
+    public List<Flight> getAllFlights() throws FlightBookingSystemException {
+        FlightSource source = flightSource;
+        if (source != null) {
+            source.loadAllFlights(this);
+        }
+        return getFlights();
+    }
+
+    /**
+     * Retrieves every flight that departs before the given date, first loading any
+     * stored flight that may do so and has not been loaded yet. Later flights that
+     * are not loaded stay that way.
+     *
+     * @param date The date the flights depart before.
+     * @return An unmodifiable list of flights.
+     * @throws FlightBookingSystemException If the stored flights cannot be read.
+     */
+    public List<Flight> getFlightsDepartingBefore(LocalDate date) throws FlightBookingSystemException {
+        FlightSource source = flightSource;
+        if (source != null) {
+            source.loadFlightsBefore(this, date);
+        }
+        List<Flight> out = new ArrayList<>();
+        forEachFlight(flight -> {
+            if (flight.getDepartureDate().isBefore(date)) {
+                out.add(flight);
+            }
+        });
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Gets the highest flight ID ever used or reserved, including flights that are
+     * not loaded yet, have been archived or have been deleted.
+     *
+     * @return The highest flight ID, or 0 if there have been no flights.
+     */
+    public int getHighestFlightId() {
+        return flightIds.getHighest();
+    }
+
+    /**
+     * Allocates the ID for a new flight. This takes constant time and is safe to
+     * call from several threads at once.
+     *
+     * @return An ID no other flight has had.
+     */
+    public int nextFlightId() {
+        return flightIds.next();
+    }
+
+    /**
+     * Reserves a block of consecutive flight IDs that no other flight will be given,
+     * so a bulk import can number its flights without asking for each ID.
+     *
+     * @param count The number of IDs to reserve.
+     * @return The first ID of the block.
+     */
+    public int reserveFlightIds(int count) {
+        return flightIds.reserve(count);
+    }
+
+    /**
+     * Makes sure new flights are never given an ID up to the given one, such as
+     * the IDs of archived flights or the highest ID recorded by storage.
+     *
+     * @param id The highest flight ID that must not be allocated again.
+     */
+    public void advanceFlightIds(int id) {
+        flightIds.advanceTo(id);
+    }
+
+    /**
+     * Sets where flights that are stored but not loaded yet come from. Their IDs
+     * are never allocated to new flights.
+     *
+     * @param flightSource The source of the remaining flights, or null if every flight is loaded.
+     */
+    public void setFlightSource(FlightSource flightSource) {
+        this.flightSource = flightSource;
+        if (flightSource != null) {
+            flightIds.advanceTo(flightSource.getHighestFlightId());
+        }
+    }
+
+    /**
+     * Gets where flights that are stored but not loaded yet come from.
+     *
+     * @return The source of the remaining flights, or null if every flight is loaded.
+     */
+    public FlightSource getFlightSource() {
+        return flightSource;
+    }
+
+    /**
+     * Adds flights that were loaded from storage. Unlike {@link #addFlight(Flight)}
+     * they are not checked or recorded as changed, and a flight that is already
+     * loaded is kept as it is.
+     *
+     * @param loaded The flights to be added.
+     */
+    public void addLoadedFlights(Collection<Flight> loaded) {
+        synchronized (flights) {
+            for (Flight flight : loaded) {
+                if (flights.putIfAbsent(flight.getId(), flight) == null) {
+                    index(flight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up a flight that is in memory, without loading it from storage. Used
+     * when storing changes, where a changed flight is always in memory and one that
+     * is missing has been removed.
+     *
+     * @param id The flight ID.
+     * @return The flight with the specified ID, or null if it is not in memory.
+     */
+    public Flight findLoadedFlight(int id) {
+        synchronized (flights) {
+            return flights.get(id);
+        }
+    }
+
     /**
      * Retrieves a flight by its unique ID.
      *
@@ -41,10 +324,235 @@ public class FlightBookingSystem {
      * @throws FlightBookingSystemException If no flight with the given ID exists.
      */
     public Flight getFlightByID(int id) throws FlightBookingSystemException {
-        if (!flights.containsKey(id)) {
-            throw new FlightBookingSystemException("There is no flight with that ID.");
+        FlightSource source = flightSource;
+        if (source != null && !isLoaded(id)) {
+            source.loadFlight(this, id); // Fault in a flight that has not been loaded yet
+        }
+        synchronized (flights) {
+            Flight flight = flights.get(id);
+            if (flight == null) {
+                throw new FlightBookingSystemException("There is no flight with that ID.");
+            }
+            return flight;
+        }
+    }
+
+    /**
+     * Retrieves a flight by its flight number and departure date, which together
+     * identify a flight. The index is kept up to date by adding and removing
+     * flights, not by changing the number or date of a flight already in the system.
+     *
+     * @param flightNumber The flight number.
+     * @param departureDate The departure date.
+     * @return The flight with that number departing on that date.
+     * @throws FlightBookingSystemException If no such flight exists.
+     */
+    public Flight getFlight(String flightNumber, LocalDate departureDate) throws FlightBookingSystemException {
+        FlightSource source = flightSource;
+        if (source != null) {
+            source.loadFlightsOn(this, departureDate);
+        }
+        synchronized (flights) {
+            Flight flight = flightsByNumberAndDate.get(key(flightNumber, departureDate));
+            if (flight == null) {
+                throw new FlightBookingSystemException("There is no flight " + flightNumber
+                        + " departing on " + departureDate + ".");
+            }
+            return flight;
+        }
+    }
+
+    /**
+     * Retrieves the flights on a route that depart within a range of dates, in order
+     * of departure. This takes logarithmic time plus the number of flights returned.
+     *
+     * @param origin The exact origin.
+     * @param destination The exact destination.
+     * @param from The earliest departure date, inclusive, or null for no limit.
+     * @param to The latest departure date, inclusive, or null for no limit.
+     * @return A list of the matching flights.
+     * @throws FlightBookingSystemException If the stored flights cannot be read.
+     */
+    public List<Flight> getFlightsOnRoute(String origin, String destination, LocalDate from, LocalDate to)
+            throws FlightBookingSystemException {
+        return findFlights(origin::equals, destination::equals, from, to);
+    }
+
+    /**
+     * Retrieves the flights whose origin and destination match the given tests and
+     * that depart within a range of dates. The tests are applied to each distinct
+     * origin and destination rather than to each flight, so this takes time in
+     * proportion to the number of routes and the flights returned.
+     *
+     * @param origin The test an origin must pass.
+     * @param destination The test a destination must pass.
+     * @param from The earliest departure date, inclusive, or null for no limit.
+     * @param to The latest departure date, inclusive, or null for no limit.
+     * @return A list of the matching flights, in order of departure within each route.
+     * @throws FlightBookingSystemException If the stored flights cannot be read.
+     */
+    public List<Flight> findFlights(Predicate<String> origin, Predicate<String> destination,
+            LocalDate from, LocalDate to) throws FlightBookingSystemException {
+        loadFlightsBetween(from, to);
+
+        List<Flight> found = new ArrayList<>();
+        synchronized (flights) {
+            for (Map.Entry<String, Map<String, NavigableMap<LocalDate, List<Flight>>>> byOrigin
+                    : flightsByRoute.entrySet()) {
+                if (!origin.test(byOrigin.getKey())) {
+                    continue;
+                }
+                for (Map.Entry<String, NavigableMap<LocalDate, List<Flight>>> byDestination
+                        : byOrigin.getValue().entrySet()) {
+                    if (!destination.test(byDestination.getKey())) {
+                        continue;
+                    }
+                    NavigableMap<LocalDate, List<Flight>> byDate = byDestination.getValue();
+                    if (from != null) {
+                        byDate = byDate.tailMap(from, true);
+                    }
+                    if (to != null) {
+                        byDate = byDate.headMap(to, true);
+                    }
+                    for (List<Flight> onDate : byDate.values()) {
+                        found.addAll(onDate);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Retrieves the flights whose flight number, origin and destination contain the
+     * given text and that depart within a range of dates. Text of three or more
+     * characters is looked up in the flight number or airport index, so only flights
+     * that may match are checked; shorter text matches through the route index.
+     *
+     * @param flightNumber Text the flight number must contain, or an empty string.
+     * @param origin Text the origin must contain, or an empty string.
+     * @param destination Text the destination must contain, or an empty string.
+     * @param from The earliest departure date, inclusive, or null for no limit.
+     * @param to The latest departure date, inclusive, or null for no limit.
+     * @return A list of the matching flights, in no particular order.
+     * @throws FlightBookingSystemException If the stored flights cannot be read.
+     */
+    public List<Flight> searchFlights(String flightNumber, String origin, String destination,
+            LocalDate from, LocalDate to) throws FlightBookingSystemException {
+        loadFlightsBetween(from, to);
+
+        List<Flight> found = new ArrayList<>();
+        synchronized (flights) {
+            if (TrigramIndex.canSearch(flightNumber)) {
+                for (Flight flight : flightNumberIndex.candidates(flightNumber)) {
+                    LocalDate date = flight.getDepartureDate();
+                    if (flight.getFlightNumber().contains(flightNumber)
+                            && flight.getOrigin().contains(origin)
+                            && flight.getDestination().contains(destination)
+                            && (from == null || !date.isBefore(from))
+                            && (to == null || !date.isAfter(to))) {
+                        found.add(flight);
+                    }
+                }
+                return found;
+            }
+
+            for (String matchingOrigin : airports(origin, flightsByRoute.keySet())) {
+                Map<String, NavigableMap<LocalDate, List<Flight>>> byDestination = flightsByRoute.get(matchingOrigin);
+                if (byDestination == null || !matchingOrigin.contains(origin)) {
+                    continue;
+                }
+                for (String matchingDestination : airports(destination, byDestination.keySet())) {
+                    NavigableMap<LocalDate, List<Flight>> byDate = byDestination.get(matchingDestination);
+                    if (byDate == null || !matchingDestination.contains(destination)) {
+                        continue;
+                    }
+                    if (from != null) {
+                        byDate = byDate.tailMap(from, true);
+                    }
+                    if (to != null) {
+                        byDate = byDate.headMap(to, true);
+                    }
+                    for (List<Flight> onDate : byDate.values()) {
+                        for (Flight flight : onDate) {
+                            if (flight.getFlightNumber().contains(flightNumber)) {
+                                found.add(flight);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the airports to check for text: the candidates from the airport index when
+     * that is fewer than the given airports, otherwise the given airports themselves.
+     * The caller must hold the flights lock.
+     */
+    private Collection<String> airports(String text, Set<String> airports) {
+        if (TrigramIndex.canSearch(text)) {
+            List<String> candidates = airportIndex.candidates(text);
+            if (candidates.size() < airports.size()) {
+                return candidates;
+            }
+        }
+        return airports;
+    }
+
+    /**
+     * Loads any stored flight departing within a range of dates that is not loaded
+     * yet, or every stored flight if the range is open.
+     */
+    private void loadFlightsBetween(LocalDate from, LocalDate to) throws FlightBookingSystemException {
+        FlightSource source = flightSource;
+        if (source != null) {
+            if (from != null && to != null) {
+                for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                    source.loadFlightsOn(this, date);
+                }
+            } else {
+                source.loadAllFlights(this);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the loaded flights departing after a date, in order of departure.
+     * Flights are read from a tail view of the departure ordered index, so this takes
+     * logarithmic time plus the number of flights returned, with no scan or sort.
+     * Every flight that has not departed yet is always loaded.
+     *
+     * @param from The date the flights must depart after.
+     * @param limit The most flights to return.
+     * @return An unmodifiable list of at most {@code limit} flights.
+     */
+    public List<Flight> upcomingFlights(LocalDate from, int limit) {
+        List<Flight> upcoming = new ArrayList<>();
+        synchronized (flights) {
+            for (List<Flight> onDate : flightsByDate.tailMap(from, false).values()) {
+                for (Flight flight : onDate) {
+                    if (upcoming.size() >= limit) {
+                        return Collections.unmodifiableList(upcoming);
+                    }
+                    upcoming.add(flight);
+                }
+            }
+        }
+        return Collections.unmodifiableList(upcoming);
+    }
+
+    /**
+     * Looks up a customer without failing when there is none, for storing changes.
+     *
+     * @param id The customer ID.
+     * @return The customer with the specified ID, or null if it has been removed.
+     */
+    public Customer findCustomer(int id) {
+        synchronized (customers) {
+            return customers.get(id);
         }
-        return flights.get(id);
     }
 
     /**
@@ -55,10 +563,13 @@ public class FlightBookingSystem {
      * @throws FlightBookingSystemException If no customer with the given ID exists.
      */
     public Customer getCustomerByID(int id) throws FlightBookingSystemException {
-        if (!customers.containsKey(id)) {
-            throw new FlightBookingSystemException("There is no customer with that ID.");
+        synchronized (customers) {
+            Customer customer = customers.get(id);
+            if (customer == null) {
+                throw new FlightBookingSystemException("There is no customer with that ID.");
+            }
+            return customer;
         }
-        return customers.get(id);
     }
 
     /**
@@ -69,17 +580,86 @@ public class FlightBookingSystem {
      * @throws IllegalArgumentException If a flight with the same ID already exists.
      */
     public void addFlight(Flight flight) throws FlightBookingSystemException {
-        if (flights.containsKey(flight.getId())) {
-            throw new IllegalArgumentException("Duplicate flight ID.");
+        FlightSource source = flightSource;
+        if (source != null) {
+            source.loadFlightsOn(this, flight.getDepartureDate()); // So the duplicate check sees them
         }
-        for (Flight existing : flights.values()) {
-            if (existing.getFlightNumber().equals(flight.getFlightNumber()) 
-                && existing.getDepartureDate().isEqual(flight.getDepartureDate())) {
+        synchronized (flights) {
+            if (flights.containsKey(flight.getId())) {
+                throw new IllegalArgumentException("Duplicate flight ID.");
+            }
+            if (flightsByNumberAndDate.containsKey(key(flight))) {
                 throw new FlightBookingSystemException("There is a flight with the same "
                         + "number and departure date in the system");
             }
+            flights.put(flight.getId(), flight);
+            index(flight);
+        }
+        markChanged(EntityType.FLIGHTS, flight.getId());
+    }
+
+    /**
+     * Adds a batch of new flights to the system, such as a bulk import, recording
+     * them as changed with a single notification.
+     * Every flight is checked against the others and the flight number index, so
+     * the batch is added in time proportional to its size.
+     *
+     * @param added The flights to be added.
+     * @throws FlightBookingSystemException If a flight has the same number and departure
+     *         date as another flight; nothing is added in that case.
+     * @throws IllegalArgumentException If a flight has the same ID as another flight.
+     */
+    public void addFlights(Collection<Flight> added) throws FlightBookingSystemException {
+        FlightSource source = flightSource;
+        if (source != null) {
+            Set<LocalDate> dates = new HashSet<>();
+            for (Flight flight : added) {
+                if (dates.add(flight.getDepartureDate())) {
+                    source.loadFlightsOn(this, flight.getDepartureDate()); // So the duplicate check sees them
+                }
+            }
+        }
+        List<Integer> ids = new ArrayList<>(added.size());
+        synchronized (flights) {
+            Set<String> keys = new HashSet<>();
+            for (Flight flight : added) {
+                if (flights.containsKey(flight.getId())) {
+                    throw new IllegalArgumentException("Duplicate flight ID.");
+                }
+                String key = key(flight);
+                if (flightsByNumberAndDate.containsKey(key) || !keys.add(key)) {
+                    throw new FlightBookingSystemException("There is a flight with the same number ("
+                            + flight.getFlightNumber() + ") and departure date (" + flight.getDepartureDate()
+                            + ") in the system");
+                }
+                ids.add(flight.getId());
+            }
+            for (Flight flight : added) {
+                flights.put(flight.getId(), flight);
+                index(flight);
+            }
+        }
+        markChanged(EntityType.FLIGHTS, ids);
+    }
+
+    /**
+     * Removes a flight from the system.
+     *
+     * @param id The ID of the flight to be removed.
+     * @return The removed flight, or null if there was no flight with that ID.
+     */
+    public Flight removeFlight(int id) {
+        Flight flight;
+        synchronized (flights) {
+            flight = flights.remove(id);
+            if (flight != null) {
+                unindex(flight);
+            }
         }
-        flights.put(flight.getId(), flight);
+        if (flight != null) {
+            markChanged(EntityType.FLIGHTS, id);
+        }
+        return flight;
     }
 
     /**
@@ -88,24 +668,673 @@ public class FlightBookingSystem {
      * @param customer The customer to be added.
      */
     public void addCustomer(Customer customer) {
-        customers.put(customer.getId(), customer);
+        synchronized (customers) {
+            putCustomer(customer);
+        }
+        markChanged(EntityType.CUSTOMERS, customer.getId());
+    }
+
+    /**
+     * Finds the customers with a phone number. Spaces, dashes, brackets and dots are
+     * ignored, so the number can be given in any of the usual formats.
+     *
+     * @param phone The phone number.
+     * @return The customers with that number, usually at most one.
+     */
+    public List<Customer> findCustomersByPhone(String phone) {
+        synchronized (customers) {
+            return new ArrayList<>(customersByPhone.getOrDefault(normalizePhone(phone), Collections.emptyList()));
+        }
+    }
+
+    /**
+     * Finds the customers with an email address, ignoring case.
+     *
+     * @param email The email address.
+     * @return The customers with that address, usually at most one.
+     */
+    public List<Customer> findCustomersByEmail(String email) {
+        synchronized (customers) {
+            return new ArrayList<>(customersByEmail.getOrDefault(normalizeEmail(email), Collections.emptyList()));
+        }
+    }
+
+    /**
+     * Finds the customers with a word in their name that starts with the given text,
+     * ignoring case, so "smi" finds both "Smith, Ann" and "Ann Smith".
+     *
+     * @param prefix The start of the name or of one of its words.
+     * @param limit The most customers to return.
+     * @return The customers found, shortest matching names first.
+     */
+    public List<Customer> findCustomersByName(String prefix, int limit) {
+        synchronized (customers) {
+            return customersByName.find(prefix.trim().toLowerCase(), limit);
+        }
+    }
+
+    /**
+     * Gets the highest customer ID ever used or reserved, including customers that
+     * have been deleted.
+     *
+     * @return The highest customer ID, or 0 if there have been no customers.
+     */
+    public int getHighestCustomerId() {
+        return customerIds.getHighest();
+    }
+
+    /**
+     * Allocates the ID for a new customer. This takes constant time and is safe to
+     * call from several threads at once.
+     *
+     * @return An ID no other customer has had.
+     */
+    public int nextCustomerId() {
+        return customerIds.next();
+    }
+
+    /**
+     * Makes sure new customers are never given an ID up to the given one, such as
+     * the highest ID recorded by storage.
+     *
+     * @param id The highest customer ID that must not be allocated again.
+     */
+    public void advanceCustomerIds(int id) {
+        customerIds.advanceTo(id);
+    }
+
+    /**
+     * Reserves a block of consecutive customer IDs that no other customer will be
+     * given, so a bulk import can number its customers without asking for each ID.
+     *
+     * @param count The number of IDs to reserve.
+     * @return The first ID of the block.
+     */
+    public int reserveCustomerIds(int count) {
+        return customerIds.reserve(count);
+    }
+
+    /**
+     * Adds a batch of new customers to the system, such as a bulk import, recording
+     * them as changed with a single notification.
+     *
+     * @param added The customers to be added.
+     */
+    public void addCustomers(Collection<Customer> added) {
+        List<Integer> ids = new ArrayList<>(added.size());
+        synchronized (customers) {
+            for (Customer customer : added) {
+                putCustomer(customer);
+                ids.add(customer.getId());
+            }
+        }
+        markChanged(EntityType.CUSTOMERS, ids);
+    }
+
+    /**
+     * Adds customers that were loaded from storage. Unlike {@link #addCustomer(Customer)}
+     * they are not recorded as changed, since storage already holds them, which keeps
+     * loading a large number of customers cheap.
+     *
+     * @param loaded The customers to be added.
+     */
+    public void addLoadedCustomers(Collection<Customer> loaded) {
+        synchronized (customers) {
+            for (Customer customer : loaded) {
+                putCustomer(customer);
+            }
+        }
     }
 
     /**
-     * Retrieves a list of all customers in the system.
+     * Allocates the next booking ID. IDs are never reused, even after a booking
+     * is cancelled or archived.
+     *
+     * @return A booking ID that no other booking has had.
+     */
+    public int nextBookingId() {
+        synchronized (bookings) {
+            return ++highestBookingId;
+        }
+    }
+
+    /**
+     * Makes sure no booking ID up to the given one is allocated again, such as the
+     * IDs of bookings that were cancelled or archived.
+     *
+     * @param id The highest booking ID that was ever allocated.
+     */
+    public void reserveBookingIds(int id) {
+        synchronized (bookings) {
+            highestBookingId = Math.max(highestBookingId, id);
+        }
+    }
+
+    /**
+     * Gets the highest booking ID allocated so far.
+     *
+     * @return The highest booking ID, or 0 if none has been allocated.
+     */
+    public int getHighestBookingId() {
+        synchronized (bookings) {
+            return highestBookingId;
+        }
+    }
+
+    /**
+     * Adds a booking to the booking index, allocating its ID if it does not have one.
+     * The booking must also be added to its customer and flights.
+     *
+     * @param booking The booking to be indexed.
+     * @throws IllegalArgumentException If another booking already has the same ID.
+     */
+    public void addBooking(Booking booking) {
+        synchronized (bookings) {
+            if (booking.getId() == 0) {
+                booking.setId(++highestBookingId);
+            }
+            Booking existing = bookings.putIfAbsent(booking.getId(), booking);
+            if (existing != null && existing != booking) {
+                throw new IllegalArgumentException("Duplicate booking ID " + booking.getId() + ".");
+            }
+            if (existing == null) {
+                indexBooking(booking);
+            }
+            highestBookingId = Math.max(highestBookingId, booking.getId());
+        }
+    }
+
+    /**
+     * Removes a booking from the booking index.
+     * The booking must also be removed from its customer and flights.
+     *
+     * @param booking The booking to be removed.
+     */
+    public void removeBooking(Booking booking) {
+        synchronized (bookings) {
+            if (bookings.remove(booking.getId(), booking)) {
+                unindexBooking(booking);
+            }
+        }
+    }
+
+    /**
+     * Moves a booking from one of its flights to another, keeping the flight index of
+     * the bookings up to date. The passenger lists of the flights are not changed.
+     *
+     * @param booking The booking to change.
+     * @param oldFlightId The ID of its outbound or return flight to replace.
+     * @param newFlight The flight to book instead.
+     * @return The flight that was replaced, or null if the booking does not include it.
+     */
+    public Flight moveBooking(Booking booking, int oldFlightId, Flight newFlight) {
+        synchronized (bookings) {
+            boolean indexed = bookings.get(booking.getId()) == booking;
+            if (indexed) {
+                unindexBooking(booking);
+            }
+            Flight oldFlight = null;
+            if (booking.getOutboundFlight().getId() == oldFlightId) {
+                oldFlight = booking.getOutboundFlight();
+                booking.setOutboundFlight(newFlight);
+            } else if (booking.getReturnFlight() != null && booking.getReturnFlight().getId() == oldFlightId) {
+                oldFlight = booking.getReturnFlight();
+                booking.setReturnFlight(newFlight);
+            }
+            if (indexed) {
+                indexBooking(booking);
+            }
+            return oldFlight;
+        }
+    }
+
+    /**
+     * Retrieves the bookings that include a flight, as the outbound or the return
+     * flight. This takes time in proportion to the bookings of that flight alone.
+     *
+     * @param flightId The flight ID.
+     * @return A list of the bookings, in the order they were added.
+     */
+    public List<Booking> getBookingsForFlight(int flightId) {
+        synchronized (bookings) {
+            return new ArrayList<>(bookingsByFlight.getOrDefault(flightId, Collections.emptySet()));
+        }
+    }
+
+    /**
+     * Finds the booking of a customer that includes a flight, either as the outbound
+     * or the return flight, by looking only at the bookings of that flight.
+     *
+     * @param customer The customer whose booking is wanted.
+     * @param flightId The ID of the flight to look for.
+     * @return The matching booking, or null if the customer has none for that flight.
+     */
+    public Booking findBooking(Customer customer, int flightId) {
+        synchronized (bookings) {
+            for (Booking booking : bookingsByFlight.getOrDefault(flightId, Collections.emptySet())) {
+                if (booking.getCustomer() == customer) {
+                    return booking;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Looks up a booking without failing when there is none, for storing changes.
+     *
+     * @param id The booking ID.
+     * @return The booking with the specified ID, or null if it has been cancelled.
+     */
+    public Booking findBooking(int id) {
+        synchronized (bookings) {
+            return bookings.get(id);
+        }
+    }
+
+    /**
+     * Retrieves a booking by its unique ID.
+     *
+     * @param id The booking ID.
+     * @return The booking with the specified ID.
+     * @throws FlightBookingSystemException If no booking with the given ID exists.
+     */
+    public Booking getBookingByID(int id) throws FlightBookingSystemException {
+        synchronized (bookings) {
+            Booking booking = bookings.get(id);
+            if (booking == null) {
+                throw new FlightBookingSystemException("There is no booking with that ID.");
+            }
+            return booking;
+        }
+    }
+
+    /**
+     * Removes a customer from the system.
+     *
+     * @param id The ID of the customer to be removed.
+     * @return The removed customer, or null if there was no customer with that ID.
+     */
+    public Customer removeCustomer(int id) {
+        Customer customer;
+        synchronized (customers) {
+            customer = customers.remove(id);
+            if (customer != null) {
+                unindex(customer);
+            }
+        }
+        if (customer != null) {
+            markChanged(EntityType.CUSTOMERS, id);
+        }
+        return customer;
+    }
+
+    /**
+     * Records that a kind of data has changed and needs to be stored.
+     *
+     * @param type The kind of data that changed.
+     */
+    public void markDirty(EntityType type) {
+        synchronized (dirty) {
+            dirty.add(type);
+        }
+        fireDataChanged(type);
+    }
+
+    /**
+     * Records that a flight or customer was added, changed or removed and needs to be stored.
+     *
+     * @param type The kind of data that changed.
+     * @param id The ID of the flight or customer that changed.
+     */
+    public void markChanged(EntityType type, int id) {
+        synchronized (dirty) {
+            changedIds.computeIfAbsent(type, t -> new HashSet<>()).add(id);
+            dirty.add(type);
+        }
+        fireDataChanged(type);
+    }
+
+    /**
+     * Records that many entities of one kind have changed, notifying listeners once.
+     */
+    private void markChanged(EntityType type, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        synchronized (dirty) {
+            changedIds.computeIfAbsent(type, t -> new HashSet<>()).addAll(ids);
+            dirty.add(type);
+        }
+        fireDataChanged(type);
+    }
+
+    /**
+     * Checks whether a kind of data has changed since it was last stored.
+     *
+     * @param type The kind of data to check.
+     * @return True if the data needs to be stored.
+     */
+    public boolean isDirty(EntityType type) {
+        synchronized (dirty) {
+            return dirty.contains(type);
+        }
+    }
+
+    /**
+     * Checks whether one flight or customer has changed since it was last stored.
+     *
+     * @param type The kind of data to check.
+     * @param id The ID of the flight or customer.
+     * @return True if it may not be stored yet.
+     */
+    public boolean isChanged(EntityType type, int id) {
+        synchronized (dirty) {
+            Set<Integer> ids = changedIds.get(type);
+            return dirty.contains(type) && (ids == null || ids.isEmpty() || ids.contains(id));
+        }
+    }
+
+    /**
+     * Gets the IDs of the flights or customers added, changed or removed since they
+     * were last stored.
+     *
+     * @param type The kind of data to get the changed IDs of.
+     * @return A copy of the changed IDs.
+     */
+    public Set<Integer> getChangedIds(EntityType type) {
+        synchronized (dirty) {
+            Set<Integer> ids = changedIds.get(type);
+            return ids != null ? new HashSet<>(ids) : new HashSet<>();
+        }
+    }
+
+    /**
+     * Records that a kind of data has been stored in full.
+     *
+     * @param type The kind of data that was stored.
+     */
+    public void markClean(EntityType type) {
+        synchronized (dirty) {
+            changedIds.remove(type);
+            dirty.remove(type);
+        }
+    }
+
+    /**
+     * Records that some flights or customers have been stored. The kind of data
+     * is clean again once every changed one of them has been stored.
+     *
+     * @param type The kind of data that was stored.
+     * @param ids The IDs of the flights or customers that were stored.
+     */
+    public void markClean(EntityType type, Collection<Integer> ids) {
+        synchronized (dirty) {
+            Set<Integer> changed = changedIds.get(type);
+            if (changed != null) {
+                changed.removeAll(ids);
+            }
+            if (changed == null || changed.isEmpty()) {
+                changedIds.remove(type);
+                dirty.remove(type);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener to be told about every change to the data.
+     *
+     * @param listener The listener to add.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a listener about changes.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private boolean isLoaded(int flightId) {
+        synchronized (flights) {
+            return flights.containsKey(flightId);
+        }
+    }
+
+    /**
+     * Adds a flight to the number, route and text indexes. The caller must hold the flights lock.
+     */
+    private void index(Flight flight) {
+        flightIds.advanceTo(flight.getId());
+        flightsByNumberAndDate.putIfAbsent(key(flight), flight);
+        flightNumberIndex.add(flight.getFlightNumber(), flight);
+        useAirport(flight.getOrigin());
+        useAirport(flight.getDestination());
+        flightsByDate.computeIfAbsent(flight.getDepartureDate(), d -> new ArrayList<>()).add(flight);
+        flightsByRoute.computeIfAbsent(flight.getOrigin(), o -> new HashMap<>())
+                .computeIfAbsent(flight.getDestination(), d -> new TreeMap<>())
+                .computeIfAbsent(flight.getDepartureDate(), d -> new ArrayList<>(1))
+                .add(flight);
+    }
+
+    /**
+     * Removes a flight from the number, route and text indexes, dropping any map it
+     * leaves empty. The caller must hold the flights lock.
+     */
+    private void unindex(Flight flight) {
+        flightsByNumberAndDate.remove(key(flight), flight);
+        flightNumberIndex.remove(flight.getFlightNumber(), flight);
+        releaseAirport(flight.getOrigin());
+        releaseAirport(flight.getDestination());
+        List<Flight> departing = flightsByDate.get(flight.getDepartureDate());
+        if (departing != null && departing.remove(flight) && departing.isEmpty()) {
+            flightsByDate.remove(flight.getDepartureDate());
+        }
+        Map<String, NavigableMap<LocalDate, List<Flight>>> byDestination = flightsByRoute.get(flight.getOrigin());
+        if (byDestination == null) {
+            return;
+        }
+        NavigableMap<LocalDate, List<Flight>> byDate = byDestination.get(flight.getDestination());
+        if (byDate == null) {
+            return;
+        }
+        List<Flight> onDate = byDate.get(flight.getDepartureDate());
+        if (onDate != null && onDate.remove(flight) && onDate.isEmpty()) {
+            byDate.remove(flight.getDepartureDate());
+            if (byDate.isEmpty()) {
+                byDestination.remove(flight.getDestination());
+                if (byDestination.isEmpty()) {
+                    flightsByRoute.remove(flight.getOrigin());
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts another flight using an airport, indexing its name for the first one.
+     */
+    private void useAirport(String airport) {
+        if (airportUses.merge(airport, 1, Integer::sum) == 1) {
+            airportIndex.add(airport, airport);
+        }
+    }
+
+    /**
+     * Counts one flight fewer using an airport, removing its name after the last one.
+     */
+    private void releaseAirport(String airport) {
+        Integer uses = airportUses.get(airport);
+        if (uses == null) {
+            return;
+        }
+        if (uses == 1) {
+            airportUses.remove(airport);
+            airportIndex.remove(airport, airport);
+        } else {
+            airportUses.put(airport, uses - 1);
+        }
+    }
+
+    /**
+     * Adds a booking to the bookings of its flights. The caller must hold the bookings lock.
+     */
+    private void indexBooking(Booking booking) {
+        bookingsByFlight.computeIfAbsent(booking.getOutboundFlight().getId(), f -> new LinkedHashSet<>()).add(booking);
+        if (booking.getReturnFlight() != null) {
+            bookingsByFlight.computeIfAbsent(booking.getReturnFlight().getId(), f -> new LinkedHashSet<>()).add(booking);
+        }
+    }
+
+    /**
+     * Removes a booking from the bookings of its flights. The caller must hold the bookings lock.
+     */
+    private void unindexBooking(Booking booking) {
+        unindexBooking(booking, booking.getOutboundFlight());
+        if (booking.getReturnFlight() != null) {
+            unindexBooking(booking, booking.getReturnFlight());
+        }
+    }
+
+    private void unindexBooking(Booking booking, Flight flight) {
+        Set<Booking> forFlight = bookingsByFlight.get(flight.getId());
+        if (forFlight != null && forFlight.remove(booking) && forFlight.isEmpty()) {
+            bookingsByFlight.remove(flight.getId());
+        }
+    }
+
+    /**
+     * Adds or replaces a customer and updates the customer indexes. The caller must
+     * hold the customers lock.
+     */
+    private void putCustomer(Customer customer) {
+        customerIds.advanceTo(customer.getId());
+        Customer previous = customers.put(customer.getId(), customer);
+        if (previous != null) {
+            unindex(previous);
+        }
+        customersByPhone.computeIfAbsent(normalizePhone(customer.getPhone()), p -> new ArrayList<>(1)).add(customer);
+        String email = normalizeEmail(customer.getEmail());
+        if (!email.isEmpty()) {
+            customersByEmail.computeIfAbsent(email, e -> new ArrayList<>(1)).add(customer);
+        }
+        String name = customer.getName().toLowerCase();
+        for (int start : wordStarts(name)) {
+            customersByName.add(name.substring(start), customer);
+        }
+    }
+
+    /**
+     * Removes a customer from the customer indexes. The caller must hold the customers lock.
+     */
+    private void unindex(Customer customer) {
+        String phone = normalizePhone(customer.getPhone());
+        List<Customer> withPhone = customersByPhone.get(phone);
+        if (withPhone != null && withPhone.remove(customer) && withPhone.isEmpty()) {
+            customersByPhone.remove(phone);
+        }
+        String email = normalizeEmail(customer.getEmail());
+        List<Customer> withEmail = customersByEmail.get(email);
+        if (withEmail != null && withEmail.remove(customer) && withEmail.isEmpty()) {
+            customersByEmail.remove(email);
+        }
+        String name = customer.getName().toLowerCase();
+        for (int start : wordStarts(name)) {
+            customersByName.remove(name.substring(start), customer);
+        }
+    }
+
+    private static List<Integer> wordStarts(String name) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isLetterOrDigit(name.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Reduces a phone number to the form the phone index compares, without spaces,
+     * dashes, brackets or dots.
+     *
+     * @param phone The phone number.
+     * @return The number as compared by {@link #findCustomersByPhone(String)}.
+     */
+    public static String normalizePhone(String phone) {
+        return phone == null ? "" : phone.replaceAll("[\\s\\-().]", "");
+    }
+
+    /**
+     * Reduces an email address to the form the email index compares.
+     *
+     * @param email The email address.
+     * @return The address as compared by {@link #findCustomersByEmail(String)}.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase();
+    }
+
+    private static String key(Flight flight) {
+        return key(flight.getFlightNumber(), flight.getDepartureDate());
+    }
+
+    private static String key(String flightNumber, LocalDate departureDate) {
+        return flightNumber + "::" + departureDate;
+    }
+
+    private void fireDataChanged(EntityType type) {
+        for (ChangeListener listener : listeners) {
+            listener.dataChanged(type);
+        }
+    }
+
+    /**
+     * Retrieves a list of all customers in the system. The list is a copy; use
+     * {@link #forEachCustomer(Consumer)} to avoid it.
      *
      * @return A list of customers.
      */
     public List<Customer> getCustomers() {
-        return new ArrayList<>(customers.values());
+        synchronized (customers) {
+            return new ArrayList<>(customers.values());
+        }
+    }
+
+    /**
+     * Passes every customer, in ID order, to an action while holding the customers
+     * lock, so nothing is copied and no other thread can change the customers meanwhile.
+     * The action should be quick and must not add or remove customers.
+     *
+     * @param action The action to perform on each customer.
+     */
+    public void forEachCustomer(Consumer<? super Customer> action) {
+        synchronized (customers) {
+            customers.values().forEach(action);
+        }
+    }
+
+    /**
+     * Gets the number of customers.
+     *
+     * @return The number of customers.
+     */
+    public int getCustomerCount() {
+        synchronized (customers) {
+            return customers.size();
+        }
     }
 
     /**
-     * Provides direct access to the map of customers.
+     * Provides direct access to the map of customers, which is guarded by its own
+     * monitor. Other packages use {@link #forEachCustomer(Consumer)} or the lookups.
      *
      * @return A map containing all customers indexed by their ID.
      */
-    public Map<Integer, Customer> getCustomersMap() {
+    Map<Integer, Customer> getCustomersMap() {
         return customers;
     }
 
@@ -128,11 +1357,12 @@ public class FlightBookingSystem {
     }
 
     /**
-     * Provides direct access to the map of flights.
+     * Provides direct access to the map of flights, which is guarded by its own
+     * monitor. Other packages use {@link #forEachFlight(Consumer)} or the lookups.
      *
      * @return A map containing all flights indexed by their ID.
      */
-    public Map<Integer, Flight> getFlightsMap() {
+    Map<Integer, Flight> getFlightsMap() {
         return flights;
     }
 }
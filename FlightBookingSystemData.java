@@ -2,54 +2,478 @@ package bcu.cmp5332.bookingsystem.data;
 
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem.EntityType;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Manages the loading and storing of data for the flight booking system.
  * This class utilizes multiple {@code DataManager} implementations to handle
  * different types of data such as flights, customers, and bookings.
+ * <p>
+ * Setting the {@code bookingsystem.format} system property to {@code binary} also
+ * keeps a {@link BinarySnapshotDataManager} snapshot beside the text files, which
+ * is loaded instead of them at startup whenever it is up to date. Setting
+ * {@code bookingsystem.flights} to {@code records} keeps flights in a
+ * {@link FlightRecordDataManager} file, where only the slots of changed flights are encoded,
+ * and setting it to {@code partitioned} splits them by departure month into the
+ * {@code bookingsystem.flights.dir} directory through a {@link PartitionedFlightDataManager},
+ * so past months are only loaded when they are asked for. The binary snapshot
+ * holds every flight, so it is not used with partitioned flights.
+ * Setting {@code bookingsystem.storage} to {@code jdbc} keeps everything in the
+ * embedded database at {@code bookingsystem.jdbc.url} through a {@link JdbcDataManager}
+ * instead of the files. Every file is kept in {@link DataManager#DATA_DIRECTORY}.
  */
 public class FlightBookingSystemData {
 
-    private static final List<DataManager> dataManagers = new ArrayList<>();
+    private static final boolean FLIGHT_RECORDS =
+            "records".equalsIgnoreCase(System.getProperty("bookingsystem.flights", "text"));
+    private static final boolean FLIGHT_PARTITIONS =
+            "partitioned".equalsIgnoreCase(System.getProperty("bookingsystem.flights", "text"));
 
-    // Static initializer block to ensure data managers are added only once
-    static {
-        dataManagers.add(new FlightDataManager());
-        dataManagers.add(new CustomerDataManager());
-        dataManagers.add(new BookingDataManager()); 
+    private static final boolean BINARY_SNAPSHOT = !FLIGHT_PARTITIONS
+            && "binary".equalsIgnoreCase(System.getProperty("bookingsystem.format", "text"));
+
+    private static final FlightRecordDataManager flightRecordDataManager =
+            FLIGHT_RECORDS ? new FlightRecordDataManager() : null;
+    private static final PartitionedFlightDataManager partitionedFlightDataManager =
+            FLIGHT_PARTITIONS ? new PartitionedFlightDataManager(
+                    System.getProperty("bookingsystem.flights.dir", DataManager.DATA_DIRECTORY + "/flights")) : null;
+    private static final FlightDataManager flightTextDataManager = new FlightDataManager();
+    private static final DataManager flightDataManager = FLIGHT_RECORDS ? flightRecordDataManager
+            : FLIGHT_PARTITIONS ? partitionedFlightDataManager : flightTextDataManager;
+    private static final CustomerDataManager customerDataManager = new CustomerDataManager();
+    private static final BookingDataManager bookingDataManager = new BookingDataManager();
+    private static final BinarySnapshotDataManager snapshotDataManager = new BinarySnapshotDataManager();
+    private static final SequenceFile flightSequence =
+            new SequenceFile(DataManager.DATA_DIRECTORY + "/flights.seq", "flight");
+    private static final SequenceFile customerSequence =
+            new SequenceFile(DataManager.DATA_DIRECTORY + "/customers.seq", "customer");
+
+    private static volatile List<String> loadWarnings = List.of();
+
+    private static final JdbcDataManager jdbcDataManager =
+            "jdbc".equalsIgnoreCase(System.getProperty("bookingsystem.storage", "files"))
+                    ? new JdbcDataManager(System.getProperty("bookingsystem.jdbc.url",
+                            "jdbc:h2:" + DataManager.DATA_DIRECTORY + "/bookingsystem"))
+                    : null;
+
+    /**
+     * Loads the stored flights, customers and bookings without replaying the
+     * booking journal, for a checkpoint to replay its part of the journal on top.
+     */
+    static void loadStored(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        if (jdbcDataManager != null) {
+            jdbcDataManager.loadData(fbs);
+            return;
+        }
+        flightDataManager.loadData(fbs);
+        customerDataManager.loadData(fbs);
+        bookingDataManager.loadSnapshot(fbs);
+    }
+
+    /**
+     * Stores only the bookings, for a journal fold.
+     * The caller must hold {@link BookingDataManager#SNAPSHOT_LOCK}.
+     */
+    static void storeBookings(FlightBookingSystem fbs) throws IOException {
+        if (jdbcDataManager != null) {
+            jdbcDataManager.storeBookings(fbs, bookingDataManager.getJournaledBookingIds());
+            bookingDataManager.writeSequence(fbs);
+        } else {
+            bookingDataManager.writeSnapshot(fbs);
+        }
+    }
+
+    /**
+     * Writes the bookings of a checkpoint ahead of {@link #commitCheckpoint(FlightBookingSystem)},
+     * without holding {@link BookingDataManager#SNAPSHOT_LOCK}. Bookings kept in the
+     * database are written by the commit instead, since only the changed rows are.
+     */
+    static void stageCheckpoint(FlightBookingSystem fbs) throws IOException {
+        if (jdbcDataManager == null) {
+            bookingDataManager.stageCheckpoint(fbs);
+        }
+    }
+
+    /**
+     * Stores the bookings of a checkpoint and discards the journal records they
+     * include. The caller must hold {@link BookingDataManager#SNAPSHOT_LOCK}.
+     *
+     * @return False if the journal was folded in since the checkpoint moved it aside,
+     *         in which case the stored bookings are already newer and are kept.
+     */
+    static boolean commitCheckpoint(FlightBookingSystem fbs) throws IOException {
+        if (!bookingDataManager.isCheckpointPending()) {
+            bookingDataManager.abandonCheckpoint();
+            return false;
+        }
+        if (jdbcDataManager != null) {
+            storeBookings(fbs);
+            bookingDataManager.discardCheckpointJournal();
+        } else {
+            bookingDataManager.commitCheckpoint(fbs);
+        }
+        return true;
     }
 
     /**
      * Loads the flight booking system data from storage.
      * This method initializes a new {@code FlightBookingSystem} instance and
      * populates it using the registered data managers.
+     * <p>
+     * Flights and customers do not depend on each other, so both files are loaded
+     * at the same time while the bookings file is parsed alongside them. Only
+     * linking the bookings to their customers and flights waits for all three,
+     * so startup takes about as long as the slowest file rather than their sum.
+     * Flights and bookings moved to the {@link FlightArchive} are not loaded, but their IDs stay reserved.
      *
      * @return A fully loaded instance of {@code FlightBookingSystem}.
      * @throws FlightBookingSystemException If an error occurs while loading the data.
      * @throws IOException If an I/O error occurs during file reading.
      */
     public static FlightBookingSystem load() throws FlightBookingSystemException, IOException {
+        FlightBookingSystem fbs;
+        if (jdbcDataManager != null) {
+            fbs = readDatabase();
+        } else {
+            GenerationCommit.recover(); // Finishes or discards a store cut short by a crash
+            fbs = BINARY_SNAPSHOT && snapshotDataManager.isCurrent() ? readSnapshot() : readText();
+        }
+        FlightArchive archive = new FlightArchive();
+        fbs.advanceFlightIds(archive.getHighestFlightId());
+        fbs.reserveBookingIds(archive.getHighestBookingId());
+        bookingDataManager.loadSequence(fbs);
+        fbs.advanceFlightIds(flightSequence.read()); // Deleted flights keep their IDs too
+        fbs.advanceCustomerIds(customerSequence.read());
+        return fbs;
+    }
+
+    /**
+     * Loads the flight booking system from the database, replaying any booking
+     * changes journaled since the bookings were last stored there.
+     */
+    private static FlightBookingSystem readDatabase() throws FlightBookingSystemException, IOException {
         FlightBookingSystem fbs = new FlightBookingSystem();
-        for (DataManager dm : dataManagers) {
-            dm.loadData(fbs);
+        jdbcDataManager.loadData(fbs);
+        loadWarnings = bookingDataManager.replayJournals(fbs);
+        markClean(fbs);
+        return fbs;
+    }
+
+    /**
+     * Loads the flight booking system from the binary snapshot, replaying any
+     * booking changes journaled since it was taken.
+     *
+     * @return A fully loaded instance of {@code FlightBookingSystem}.
+     * @throws FlightBookingSystemException If the snapshot is invalid.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    public static FlightBookingSystem loadSnapshot() throws FlightBookingSystemException, IOException {
+        GenerationCommit.recover();
+        return readSnapshot();
+    }
+
+    private static FlightBookingSystem readSnapshot() throws FlightBookingSystemException, IOException {
+        FlightBookingSystem fbs = new FlightBookingSystem();
+        snapshotDataManager.loadData(fbs);
+        loadWarnings = bookingDataManager.replayJournals(fbs);
+        markClean(fbs);
+        return fbs;
+    }
+
+    /**
+     * Loads the flight booking system from the text files, ignoring any binary snapshot.
+     *
+     * @return A fully loaded instance of {@code FlightBookingSystem}.
+     * @throws FlightBookingSystemException If an error occurs while loading the data.
+     * @throws IOException If an I/O error occurs during file reading.
+     */
+    public static FlightBookingSystem loadText() throws FlightBookingSystemException, IOException {
+        GenerationCommit.recover();
+        return readText();
+    }
+
+    private static FlightBookingSystem readText() throws FlightBookingSystemException, IOException {
+        FlightBookingSystem fbs = new FlightBookingSystem();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // Flights and customers fill separate maps, so they can load side by side
+            Future<?> flights = executor.submit(() -> {
+                flightDataManager.loadData(fbs);
+                return null;
+            });
+            Future<?> customers = executor.submit(() -> {
+                customerDataManager.loadData(fbs);
+                return null;
+            });
+            Future<List<BookingDataManager.BookingRecord>> bookings = executor.submit(bookingDataManager::parseSnapshot);
+
+            // Linking needs every flight and customer, so join on all three first
+            await(flights);
+            await(customers);
+            List<BookingDataManager.BookingRecord> records = await(bookings);
+
+            bookingDataManager.linkSnapshot(fbs, records);
+            loadWarnings = bookingDataManager.replayJournals(fbs);
+        } finally {
+            executor.shutdownNow(); // Abandons the remaining stages if one of them failed
         }
+        markClean(fbs);
         return fbs;
     }
 
+    /**
+     * Gets a message for each booking journal record that the last load could not
+     * replay. Those records are left out of the loaded bookings and kept in the
+     * rejected-records file for someone to look at.
+     *
+     * @return The messages, empty if every record was replayed.
+     */
+    public static List<String> getLoadWarnings() {
+        return loadWarnings;
+    }
+
+    /**
+     * Marks freshly loaded data as unchanged, since it matches what is stored.
+     */
+    private static void markClean(FlightBookingSystem fbs) {
+        for (EntityType type : EntityType.values()) {
+            fbs.markClean(type);
+        }
+    }
+
+    /**
+     * Waits for a load stage to finish and rethrows whatever it failed with.
+     */
+    private static <T> T await(Future<T> stage) throws FlightBookingSystemException, IOException {
+        try {
+            return stage.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading data", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof FlightBookingSystemException) {
+                throw (FlightBookingSystemException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     /**
      * Stores the flight booking system data to storage.
-     * This method iterates through the registered data managers and saves
-     * all relevant data to files or other storage mediums.
+     * Only data that changed since it was last stored is written: untouched files
+     * are skipped, only changed flight records are encoded, and the bookings
+     * file is only rewritten when there are journaled changes to fold into it.
+     * The files that are rewritten are replaced together as one {@link GenerationCommit},
+     * so a crash never leaves bookings pointing at flights or customers that are
+     * not in the other files.
      *
      * @param fbs The flight booking system instance containing data to be stored.
      * @throws IOException If an I/O error occurs during file writing.
      */
     public static void store(FlightBookingSystem fbs) throws IOException {
-        for (DataManager dm : dataManagers) {
-            dm.storeData(fbs);
+        store(fbs, true);
+        if (BINARY_SNAPSHOT && !snapshotDataManager.isCurrent()) {
+            storeSnapshot(fbs); // Only stale once one of the files above has changed
+        }
+    }
+
+    /**
+     * Stores the flights and customers that changed since they were last stored.
+     * Journaled booking changes are left for the {@link Checkpointer} to fold in,
+     * so this stays cheap enough to run after every few commands, and it is safe
+     * to call while other threads keep changing the system.
+     *
+     * @param fbs The flight booking system instance containing data to be stored.
+     * @throws IOException If an I/O error occurs during file writing.
+     */
+    public static void storeChanges(FlightBookingSystem fbs) throws IOException {
+        store(fbs, false);
+    }
+
+    /**
+     * Writes the changed data as one generation. The changes are marked clean before
+     * the data is copied, so a change made while writing is stored the next time,
+     * and marked dirty again if writing fails.
+     */
+    private static void store(FlightBookingSystem fbs, boolean includeBookings) throws IOException {
+        synchronized (BookingDataManager.SNAPSHOT_LOCK) { // Keeps stores from overtaking each other
+            boolean flights = fbs.isDirty(EntityType.FLIGHTS);
+            Set<Integer> changedFlights = fbs.getChangedIds(EntityType.FLIGHTS);
+            fbs.markClean(EntityType.FLIGHTS, changedFlights);
+            boolean customers = fbs.isDirty(EntityType.CUSTOMERS);
+            Set<Integer> changedCustomers = fbs.getChangedIds(EntityType.CUSTOMERS);
+            fbs.markClean(EntityType.CUSTOMERS, changedCustomers);
+            boolean bookings = includeBookings && bookingDataManager.hasJournaledChanges();
+
+            try {
+                if (jdbcDataManager != null) {
+                    // Only the changed rows are upserted; dirty data without IDs is written in full
+                    jdbcDataManager.storeChanges(fbs,
+                            !flights ? Set.of() : changedFlights.isEmpty() ? null : changedFlights,
+                            !customers ? Set.of() : changedCustomers.isEmpty() ? null : changedCustomers,
+                            !bookings ? Set.of() : bookingDataManager.getJournaledBookingIds());
+                    if (flights) {
+                        flightSequence.write(fbs.getHighestFlightId());
+                    }
+                    if (customers) {
+                        customerSequence.write(fbs.getHighestCustomerId());
+                    }
+                    if (bookings) {
+                        bookingDataManager.writeSequence(fbs);
+                        bookingDataManager.discardJournals();
+                    }
+                    return;
+                }
+
+                GenerationCommit commit = new GenerationCommit();
+                if (flights) {
+                    if (flightRecordDataManager != null) {
+                        // Only the changed slots are encoded into a copy of the record file
+                        if (changedFlights.isEmpty()) {
+                            flightRecordDataManager.stage(fbs, commit);
+                        } else {
+                            flightRecordDataManager.stageFlights(fbs, changedFlights, commit);
+                        }
+                    } else if (partitionedFlightDataManager != null) {
+                        // Only the months holding changed flights are rewritten
+                        partitionedFlightDataManager.stage(fbs,
+                                changedFlights.isEmpty() ? null : changedFlights, commit);
+                    } else {
+                        flightTextDataManager.stage(fbs, commit);
+                    }
+                }
+                if (flights) {
+                    flightSequence.stage(fbs.getHighestFlightId(), commit);
+                }
+                if (customers) {
+                    customerDataManager.stage(fbs, commit);
+                    customerSequence.stage(fbs.getHighestCustomerId(), commit);
+                }
+                if (bookings) {
+                    bookingDataManager.stage(fbs, commit);
+                }
+                commit.commit();
+            } catch (IOException | RuntimeException ex) {
+                markChanged(fbs, EntityType.FLIGHTS, flights, changedFlights);
+                markChanged(fbs, EntityType.CUSTOMERS, customers, changedCustomers);
+                throw ex;
+            }
+            if (bookings) {
+                bookingDataManager.discardJournals();
+            }
         }
     }
+
+    /**
+     * Stores the pending changes now if the given customer or any of the given
+     * flights has not reached disk yet. This must be done before a booking that
+     * refers to them is journaled, since the journal is written straight away while
+     * flights and customers are written behind, and replaying a record that names a
+     * customer or flight that was never stored would fail on the next load.
+     *
+     * @param fbs The flight booking system holding the changes.
+     * @param customerId The ID of the customer the booking belongs to.
+     * @param flightIds The IDs of the flights the booking refers to.
+     * @throws IOException If the changes cannot be written.
+     */
+    public static void storeReferencedChanges(FlightBookingSystem fbs, int customerId, int... flightIds)
+            throws IOException {
+        synchronized (BookingDataManager.SNAPSHOT_LOCK) { // Waits for a store already writing them
+            boolean changed = fbs.isChanged(EntityType.CUSTOMERS, customerId);
+            for (int flightId : flightIds) {
+                changed |= fbs.isChanged(EntityType.FLIGHTS, flightId);
+            }
+            if (changed) {
+                store(fbs, false);
+            }
+        }
+    }
+
+    /**
+     * Folds the booking journal into the stored bookings and discards it. This must
+     * be done before a customer or flight is deleted, since replaying a journal
+     * record that names one that no longer exists would fail on the next load.
+     * Deleting either requires it to have no bookings left, so the bookings stored
+     * here no longer refer to it.
+     *
+     * @param fbs The flight booking system holding every booking.
+     * @throws IOException If the bookings cannot be written.
+     */
+    public static void foldBookingJournal(FlightBookingSystem fbs) throws IOException {
+        if (!bookingDataManager.hasJournaledChanges()) {
+            return; // Nothing in the journal can refer to the record being deleted
+        }
+        synchronized (BookingDataManager.SNAPSHOT_LOCK) {
+            if (!bookingDataManager.hasJournaledChanges()) {
+                return; // Folded by someone else while waiting for the lock
+            }
+            storeBookings(fbs);
+            bookingDataManager.discardJournals();
+        }
+    }
+
+    /**
+     * Marks data that failed to be stored as changed again.
+     */
+    private static void markChanged(FlightBookingSystem fbs, EntityType type, boolean dirty, Set<Integer> ids) {
+        for (int id : ids) {
+            fbs.markChanged(type, id);
+        }
+        if (dirty && ids.isEmpty()) {
+            fbs.markDirty(type);
+        }
+    }
+
+    /**
+     * Stores all of the flight booking system data to the text files only,
+     * whether or not it has changed. The files are replaced together as one
+     * {@link GenerationCommit}.
+     *
+     * @param fbs The flight booking system instance containing data to be stored.
+     * @throws IOException If an I/O error occurs during file writing.
+     */
+    public static void storeText(FlightBookingSystem fbs) throws IOException {
+        synchronized (BookingDataManager.SNAPSHOT_LOCK) {
+            GenerationCommit commit = new GenerationCommit();
+            if (flightRecordDataManager != null) {
+                flightRecordDataManager.stage(fbs, commit);
+            } else if (partitionedFlightDataManager != null) {
+                partitionedFlightDataManager.stage(fbs, null, commit);
+            } else {
+                flightTextDataManager.stage(fbs, commit);
+            }
+            flightSequence.stage(fbs.getHighestFlightId(), commit);
+            customerDataManager.stage(fbs, commit);
+            customerSequence.stage(fbs.getHighestCustomerId(), commit);
+            bookingDataManager.stage(fbs, commit);
+            commit.commit();
+            bookingDataManager.discardJournals();
+        }
+        markClean(fbs);
+    }
+
+    /**
+     * Writes a binary snapshot of the flight booking system. The text files must
+     * already hold the same data, since the snapshot records their current state.
+     *
+     * @param fbs The flight booking system instance containing data to be stored.
+     * @throws IOException If an I/O error occurs during file writing.
+     */
+    public static void storeSnapshot(FlightBookingSystem fbs) throws IOException {
+        snapshotDataManager.storeData(fbs);
+    }
 }
@@ -40,6 +40,13 @@ class FlightBookingSystemTest {
         flight1.addPassenger(passenger1);
         assertEquals(1, flight1.getPassengers().size());  // FIXED: Check the size of the list
         assertTrue(flight1.getPassengers().contains(passenger1));
+        assertEquals(199, flight1.getAvailableSeats());
+
+        flight1.addPassenger(passenger1); // Already booked, so no seat is taken
+        assertEquals(1, flight1.getPassengerCount());
+        flight1.removePassenger(passenger1);
+        assertEquals(200, flight1.getAvailableSeats());
+        assertTrue(flight1.getPassengerView().isEmpty());
     }
 
     @Test
@@ -81,4 +88,100 @@ class FlightBookingSystemTest {
         });
         assertEquals("There is no flight with that ID.", exception.getMessage());
     }
+
+    @Test
+    public void testDirtyTracking() {
+        assertTrue(fbs.isDirty(FlightBookingSystem.EntityType.FLIGHTS));
+        assertTrue(fbs.isDirty(FlightBookingSystem.EntityType.CUSTOMERS));
+
+        fbs.markClean(FlightBookingSystem.EntityType.FLIGHTS);
+        fbs.markClean(FlightBookingSystem.EntityType.CUSTOMERS);
+        assertFalse(fbs.isDirty(FlightBookingSystem.EntityType.FLIGHTS));
+        assertTrue(fbs.getChangedIds(FlightBookingSystem.EntityType.FLIGHTS).isEmpty());
+
+        fbs.removeFlight(102);
+        assertTrue(fbs.isDirty(FlightBookingSystem.EntityType.FLIGHTS));
+        assertFalse(fbs.isDirty(FlightBookingSystem.EntityType.CUSTOMERS));
+        assertEquals(java.util.Set.of(102), fbs.getChangedIds(FlightBookingSystem.EntityType.FLIGHTS));
+
+        fbs.markClean(FlightBookingSystem.EntityType.FLIGHTS, java.util.Set.of(102));
+        assertFalse(fbs.isDirty(FlightBookingSystem.EntityType.FLIGHTS));
+    }
+
+    @Test
+    public void testBookingIds() throws FlightBookingSystemException {
+        fbs.reserveBookingIds(5);
+        Booking booking = new Booking(passenger1, flight1, null, LocalDate.of(2025, 5, 1));
+        fbs.addBooking(booking);
+        assertEquals(6, booking.getId());
+        assertSame(booking, fbs.getBookingByID(6));
+
+        fbs.removeBooking(booking);
+        assertThrows(FlightBookingSystemException.class, () -> fbs.getBookingByID(6));
+        assertEquals(7, fbs.nextBookingId()); // Cancelled IDs are not reused
+    }
+
+    @Test
+    public void testGetFlightByNumberAndDate() throws FlightBookingSystemException {
+        assertSame(flight2, fbs.getFlight("FL456", LocalDate.of(2025, 6, 15)));
+        assertThrows(FlightBookingSystemException.class,
+                () -> fbs.addFlight(new Flight(103, "FL456", "Paris", "Rome", LocalDate.of(2025, 6, 15), 10, 1.0)));
+
+        fbs.removeFlight(102);
+        assertThrows(FlightBookingSystemException.class, () -> fbs.getFlight("FL456", LocalDate.of(2025, 6, 15)));
+        fbs.addFlight(new Flight(103, "FL456", "Paris", "Rome", LocalDate.of(2025, 6, 15), 10, 1.0));
+        assertEquals(103, fbs.getFlight("FL456", LocalDate.of(2025, 6, 15)).getId());
+    }
+
+    @Test
+    public void testUpcomingFlights() throws FlightBookingSystemException {
+        Flight flight3 = new Flight(103, "FL789", "Chicago", "Boston", LocalDate.of(2025, 6, 12), 100, 150.0);
+        fbs.addFlight(flight3);
+        assertEquals(java.util.List.of(flight1, flight3, flight2), fbs.upcomingFlights(LocalDate.of(2025, 6, 1), 10));
+        assertEquals(java.util.List.of(flight3), fbs.upcomingFlights(LocalDate.of(2025, 6, 10), 1));
+
+        fbs.removeFlight(103);
+        assertEquals(java.util.List.of(flight2), fbs.upcomingFlights(LocalDate.of(2025, 6, 10), 10));
+    }
+
+    @Test
+    public void testFindCustomers() {
+        assertEquals(java.util.List.of(passenger1), fbs.findCustomersByPhone("111-111 111"));
+        assertEquals(java.util.List.of(passenger2), fbs.findCustomersByEmail(" Sudip@Example.com"));
+        assertEquals(java.util.List.of(passenger1), fbs.findCustomersByName("ROS", 10));
+
+        Customer renamed = new Customer(7, "Anna Rossi", "222", "");
+        fbs.addCustomer(renamed); // Replaces customer 7
+        assertEquals(java.util.List.of(renamed), fbs.findCustomersByName("ros", 10));
+        assertTrue(fbs.findCustomersByPhone("111111111").isEmpty());
+
+        fbs.removeCustomer(7);
+        assertTrue(fbs.findCustomersByName("r", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchFlightsByPartialText() throws FlightBookingSystemException {
+        assertEquals(java.util.List.of(flight1), fbs.searchFlights("L12", "", "", null, null));
+        assertEquals(java.util.List.of(flight2), fbs.searchFlights("", "Angel", "Chic", null, null));
+        assertEquals(2, fbs.searchFlights("FL", "", "", null, null).size());
+        assertTrue(fbs.searchFlights("", "York", "", LocalDate.of(2025, 6, 11), null).isEmpty());
+
+        fbs.removeFlight(101);
+        assertTrue(fbs.searchFlights("FL123", "", "", null, null).isEmpty());
+        assertTrue(fbs.searchFlights("", "New Y", "", null, null).isEmpty());
+    }
+
+    @Test
+    public void testIdSequences() {
+        assertEquals(103, fbs.nextFlightId());
+        fbs.removeFlight(102);
+        assertEquals(104, fbs.nextFlightId()); // Deleted IDs are not reused
+        assertEquals(105, fbs.reserveFlightIds(10));
+        assertEquals(115, fbs.nextFlightId());
+
+        fbs.advanceCustomerIds(20);
+        assertEquals(21, fbs.nextCustomerId());
+        fbs.removeCustomer(8);
+        assertEquals(21, fbs.getHighestCustomerId());
+    }
 }
@@ -3,13 +3,13 @@ package bcu.cmp5332.bookingsystem.data;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.Scanner;
+import java.util.List;
 
 /**
  * Manages the loading and storing of flight data from a file.
@@ -17,13 +17,14 @@ import java.util.Scanner;
  */
 public class FlightDataManager implements DataManager {
 
-    private final String RESOURCE = "./resources/data/flights.txt";
+    private final String RESOURCE = DataManager.DATA_DIRECTORY + "/flights.txt";
     private static final String SEPARATOR = "::"; // Ensures consistency in data formatting
 
     /**
      * Loads flight data from a file and populates the flight booking system.
-     * This method reads each line from the file, extracts flight details, 
-     * and adds them to the system.
+     * The file is parsed in chunks on every available core by a
+     * {@link ChunkedFileParser}, and the flights are then added to the system
+     * in the order they appear in the file.
      *
      * @param fbs The flight booking system to populate.
      * @throws IOException If an error occurs while reading the file.
@@ -31,52 +32,63 @@ public class FlightDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
-        try (Scanner sc = new Scanner(new File(RESOURCE))) {
-            int line_idx = 1;
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine().trim(); // Trim the line to remove leading/trailing whitespace
-                if (line.isEmpty()) {
-                    continue; // Skip empty lines
-                }
+        List<Flight> flights = new ChunkedFileParser<>(FlightDataManager::parseFlight).parse(RESOURCE);
+        for (Flight flight : flights) {
+            fbs.addFlight(flight);
+        }
+    }
 
-                String[] properties = line.split(SEPARATOR, -1);
-                if (properties.length < 7) {
-                    throw new FlightBookingSystemException("Invalid flight data format on line " + line_idx);
-                }
+    /**
+     * Parses the fields of a single line of the flights file.
+     */
+    static Flight parseFlight(FieldTokenizer properties, int line_idx) throws FlightBookingSystemException {
+        if (properties.fieldCount() < 7) {
+            throw new FlightBookingSystemException("Invalid flight data format on line " + line_idx);
+        }
 
-                try {
-                    int id = Integer.parseInt(properties[0]);
-                    String flightNumber = properties[1];
-                    String origin = properties[2];
-                    String destination = properties[3];
-                    LocalDate departureDate = LocalDate.parse(properties[4]);
-                    int capacity = Integer.parseInt(properties[5]);
-                    double price = Double.parseDouble(properties[6]);
+        try {
+            int id = properties.getInt(0);
+            String flightNumber = properties.getString(1);
+            String origin = properties.getString(2);
+            String destination = properties.getString(3);
+            LocalDate departureDate = properties.getDate(4);
+            int capacity = properties.getInt(5);
+            double price = properties.getDouble(6);
 
-                    Flight flight = new Flight(id, flightNumber, origin, destination, departureDate, capacity, price);
-                    fbs.addFlight(flight);
-                } catch (NumberFormatException ex) {
-                    throw new FlightBookingSystemException("Unable to parse flight id " + properties[0] + " on line " + line_idx
-                        + "\nError: " + ex);
-                } catch (DateTimeParseException ex) {
-                    throw new FlightBookingSystemException("Invalid date format on line " + line_idx
-                        + "\nError: " + ex);
-                }
-                line_idx++;
-            }
+            return new Flight(id, flightNumber, origin, destination, departureDate, capacity, price);
+        } catch (NumberFormatException ex) {
+            throw new FlightBookingSystemException("Unable to parse flight id " + properties.getString(0) + " on line " + line_idx
+                + "\nError: " + ex);
+        } catch (DateTimeParseException ex) {
+            throw new FlightBookingSystemException("Invalid date format on line " + line_idx
+                + "\nError: " + ex);
         }
     }
 
     /**
      * Stores the current flight data into a file.
      * The flight details are written in a structured format using "::" as a separator.
+     * The new file is synced and then renamed over the old one.
      *
      * @param fbs The flight booking system containing the flight data.
      * @throws IOException If an error occurs while writing to the file.
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
+        GenerationCommit commit = new GenerationCommit();
+        stage(fbs, commit);
+        commit.commit();
+    }
+
+    /**
+     * Adds the flights file to a generation that is committed along with other files.
+     */
+    void stage(FlightBookingSystem fbs, GenerationCommit commit) {
+        commit.add(RESOURCE, path -> writeFlights(fbs, path));
+    }
+
+    private void writeFlights(FlightBookingSystem fbs, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path.toFile()))) {
             for (Flight flight : fbs.getFlights()) {
                 out.print(flight.getId() + SEPARATOR);
                 out.print(flight.getFlightNumber() + SEPARATOR);
@@ -87,6 +99,9 @@ public class FlightDataManager implements DataManager {
                 out.print(flight.getPrice() + SEPARATOR);
                 out.println();
             }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + path);
+            }
         }
     }
 }
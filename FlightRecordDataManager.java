@@ -0,0 +1,247 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Manages flight data as fixed-width records in a random-access file.
+ * <p>
+ * Each flight lives in the slot given by its ID, so adding, changing or deleting
+ * a flight only encodes that slot instead of every flight. The slot is written into
+ * a byte-for-byte copy of the file that replaces it through a {@link GenerationCommit},
+ * so a crash never leaves a slot half written or flights out of step with the other
+ * files. Deleted flights leave a tombstone behind.
+ * A record holds, in order:
+ * <pre>
+ * status          1 byte (empty, live or deleted)
+ * id              4 bytes
+ * departure date  4 bytes, as an epoch day
+ * capacity        4 bytes
+ * price           8 bytes
+ * flight number   2-byte length and up to 16 bytes of UTF-8
+ * origin          2-byte length and up to 64 bytes of UTF-8
+ * destination     2-byte length and up to 64 bytes of UTF-8
+ * </pre>
+ * padded to {@value #RECORD_SIZE} bytes, after a {@value #HEADER_SIZE}-byte header.
+ */
+public class FlightRecordDataManager implements DataManager {
+
+    private final String RESOURCE = DataManager.DATA_DIRECTORY + "/flights.dat";
+
+    private static final int MAGIC = 0x46425346; // "FBSF"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 192;
+
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    private static final int FLIGHT_NUMBER_BYTES = 16;
+    private static final int PLACE_BYTES = 64;
+
+    /**
+     * Loads every live flight record into the flight booking system. When no record
+     * file exists yet the flights are loaded from the text file instead, so an
+     * existing data set switches over on its next full store.
+     *
+     * @param fbs The flight booking system to populate.
+     * @throws IOException If an error occurs while reading the file.
+     * @throws FlightBookingSystemException If the file is invalid.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        Path path = Paths.get(RESOURCE);
+        if (!Files.exists(path)) {
+            new FlightDataManager().loadData(fbs);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.limit() < HEADER_SIZE || in.getInt(0) != MAGIC) {
+                throw new FlightBookingSystemException(RESOURCE + " is not a flight record file.");
+            }
+            if (in.getInt(4) != VERSION || in.getInt(8) != RECORD_SIZE) {
+                throw new FlightBookingSystemException("Unsupported flight record version " + in.getInt(4)
+                        + " in " + RESOURCE);
+            }
+
+            byte[] scratch = new byte[PLACE_BYTES];
+            for (int slot = HEADER_SIZE; slot + RECORD_SIZE <= in.limit(); slot += RECORD_SIZE) {
+                byte status = in.get(slot);
+                if (status == EMPTY || status == DELETED) {
+                    continue; // Never used, or a tombstone
+                }
+                in.position(slot + 1);
+                int id = in.getInt();
+                LocalDate departureDate = LocalDate.ofEpochDay(in.getInt());
+                int capacity = in.getInt();
+                double price = in.getDouble();
+                String flightNumber = getString(in, FLIGHT_NUMBER_BYTES, scratch);
+                String origin = getString(in, PLACE_BYTES, scratch);
+                String destination = getString(in, PLACE_BYTES, scratch);
+                fbs.addFlight(new Flight(id, flightNumber, origin, destination, departureDate, capacity, price));
+            }
+        }
+    }
+
+    /**
+     * Rewrites the record file so it holds exactly the flights in the system.
+     * The file is written and synced beside the original and then moved into place.
+     *
+     * @param fbs The flight booking system containing the flight data.
+     * @throws IOException If an error occurs while writing the file.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        stage(fbs, commit);
+        commit.commit();
+    }
+
+    /**
+     * Adds the whole record file to a generation that is committed along with other files.
+     */
+    void stage(FlightBookingSystem fbs, GenerationCommit commit) {
+        commit.add(RESOURCE, path -> writeFlights(fbs, path));
+    }
+
+    private static void writeFlights(FlightBookingSystem fbs, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeHeader(channel);
+            for (Flight flight : fbs.getFlights()) {
+                writeRecord(channel, flight);
+            }
+        }
+    }
+
+    /**
+     * Writes only the slots of the given flights, leaving every other record untouched.
+     * A flight that is still in the system is written in full, while the slot of one
+     * that has been removed only has its status byte changed to a tombstone. When no
+     * record file exists yet, every flight is written instead.
+     *
+     * @param fbs The flight booking system containing the flight data.
+     * @param flightIds The IDs of the flights that were added, changed or removed.
+     * @throws IOException If a flight does not fit its record, or an error occurs
+     *         while writing the records.
+     */
+    public void storeFlights(FlightBookingSystem fbs, Collection<Integer> flightIds) throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        stageFlights(fbs, flightIds, commit);
+        commit.commit();
+    }
+
+    /**
+     * Adds the record file to a generation that is committed along with other files,
+     * with only the slots of the given flights changed from the current file.
+     * <p>
+     * Every record is encoded here, before anything is written, so a flight whose
+     * flight number, origin or destination is too long for its record fails the
+     * store before the generation is committed.
+     */
+    void stageFlights(FlightBookingSystem fbs, Collection<Integer> flightIds, GenerationCommit commit)
+            throws IOException {
+        Path path = Paths.get(RESOURCE);
+        if (!Files.exists(path)) {
+            stage(fbs, commit); // The other flights are still only in the text file
+            return;
+        }
+
+        Map<Integer, ByteBuffer> records = new LinkedHashMap<>();
+        for (int flightId : flightIds) {
+            Flight flight = fbs.findLoadedFlight(flightId);
+            records.put(flightId, flight != null ? encodeRecord(flight) : null);
+        }
+
+        commit.add(RESOURCE, copy -> {
+            Files.copy(path, copy); // Every other slot stays byte for byte as it was
+            try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (Map.Entry<Integer, ByteBuffer> record : records.entrySet()) {
+                    long position = slotPosition(record.getKey());
+                    if (record.getValue() != null) {
+                        write(channel, record.getValue(), position);
+                    } else if (position < channel.size()) { // No longer in the system
+                        write(channel, ByteBuffer.wrap(new byte[]{DELETED}), position);
+                    }
+                }
+            }
+        });
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0);
+        header.flip();
+        write(channel, header, 0);
+    }
+
+    private static void writeRecord(FileChannel channel, Flight flight) throws IOException {
+        write(channel, encodeRecord(flight), slotPosition(flight.getId()));
+    }
+
+    private static ByteBuffer encodeRecord(Flight flight) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(LIVE);
+        record.putInt(flight.getId());
+        record.putInt((int) flight.getDepartureDate().toEpochDay());
+        record.putInt(flight.getCapacity());
+        record.putDouble(flight.getPrice());
+        putString(record, flight, "flight number", flight.getFlightNumber(), FLIGHT_NUMBER_BYTES);
+        putString(record, flight, "origin", flight.getOrigin(), PLACE_BYTES);
+        putString(record, flight, "destination", flight.getDestination(), PLACE_BYTES);
+        record.clear(); // Write the whole slot, padding included
+        return record;
+    }
+
+    /**
+     * Gets the file position of the slot belonging to a flight ID.
+     */
+    private static long slotPosition(int flightId) throws IOException {
+        if (flightId < 0) {
+            throw new IOException("Flight #" + flightId + " cannot be stored in the record file.");
+        }
+        return HEADER_SIZE + (long) flightId * RECORD_SIZE;
+    }
+
+    private static void putString(ByteBuffer record, Flight flight, String field, String value, int maxBytes)
+            throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new IOException("Flight #" + flight.getId() + " cannot be stored as a flight record: its "
+                    + field + " \"" + value + "\" takes " + bytes.length + " bytes in UTF-8, but at most "
+                    + maxBytes + " are allowed. Shorten it or delete the flight.");
+        }
+        record.putShort((short) bytes.length);
+        record.put(bytes);
+        record.position(record.position() + maxBytes - bytes.length);
+    }
+
+    private static String getString(ByteBuffer in, int maxBytes, byte[] scratch) {
+        int length = in.getShort();
+        in.get(scratch, 0, length);
+        in.position(in.position() + maxBytes - length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecordDataManagerTest {
+
+    private static final Path DIRECTORY = BookingDataManagerTest.DIRECTORY; // Also points the data classes at it
+
+    private final FlightRecordDataManager manager = new FlightRecordDataManager();
+    private FlightBookingSystem fbs;
+
+    @BeforeEach
+    void setUp() throws IOException, FlightBookingSystemException {
+        BookingDataManagerTest.clearDirectory();
+        fbs = new FlightBookingSystem();
+        fbs.addFlight(new Flight(1, "FL100", "London", "Paris", LocalDate.of(2030, 1, 10), 10, 100.0));
+        fbs.addFlight(new Flight(2, "FL200", "Kathmandu", "São Paulo", LocalDate.of(2030, 2, 1), 150, 899.5));
+        fbs.addFlight(new Flight(5, "FL500", "London", "Rome", LocalDate.of(2030, 3, 3), 20, 120.0));
+    }
+
+    @Test
+    void testStoreAndLoadEveryFlight() throws IOException, FlightBookingSystemException {
+        manager.storeData(fbs);
+
+        FlightBookingSystem loaded = load();
+        assertEquals(3, loaded.getFlightCount());
+        Flight flight = loaded.getFlightByID(2);
+        assertEquals("FL200", flight.getFlightNumber());
+        assertEquals("Kathmandu", flight.getOrigin());
+        assertEquals("São Paulo", flight.getDestination());
+        assertEquals(LocalDate.of(2030, 2, 1), flight.getDepartureDate());
+        assertEquals(150, flight.getCapacity());
+        assertEquals(899.5, flight.getPrice());
+    }
+
+    @Test
+    void testStoreFlightsWritesOnlyChangedSlots() throws IOException, FlightBookingSystemException {
+        manager.storeData(fbs);
+        long size = Files.size(DIRECTORY.resolve("flights.dat"));
+
+        fbs.getFlightByID(1).setPrice(75.0);
+        fbs.removeFlight(2);
+        manager.storeFlights(fbs, Set.of(1, 2));
+
+        assertEquals(size, Files.size(DIRECTORY.resolve("flights.dat"))); // Same slots, nothing appended
+        FlightBookingSystem loaded = load();
+        assertEquals(List.of(1, 5), List.of(loaded.getFlights().get(0).getId(), loaded.getFlights().get(1).getId()));
+        assertEquals(75.0, loaded.getFlightByID(1).getPrice());
+    }
+
+    @Test
+    void testStoreFlightsAppendsNewFlight() throws IOException, FlightBookingSystemException {
+        manager.storeData(fbs);
+
+        fbs.addFlight(new Flight(9, "FL900", "Paris", "Berlin", LocalDate.of(2030, 4, 4), 30, 60.0));
+        manager.storeFlights(fbs, Set.of(9));
+
+        FlightBookingSystem loaded = load();
+        assertEquals(4, loaded.getFlightCount());
+        assertEquals("Berlin", loaded.getFlightByID(9).getDestination());
+    }
+
+    @Test
+    void testLongestAllowedValuesFitRecord() throws IOException, FlightBookingSystemException {
+        String flightNumber = "F".repeat(16);
+        String place = "é".repeat(32); // Two bytes each in UTF-8, so 64 in all
+
+        fbs.addFlight(new Flight(7, flightNumber, place, place, LocalDate.of(2030, 5, 5), 10, 50.0));
+        manager.storeData(fbs);
+        assertEquals(place, load().getFlightByID(7).getOrigin());
+    }
+
+    @Test
+    void testStoreFlightsRejectsValueTooLongForRecord() throws IOException, FlightBookingSystemException {
+        manager.storeData(fbs);
+
+        fbs.getFlightByID(1).setPrice(75.0);
+        fbs.addFlight(new Flight(8, "FL800", "é".repeat(33), "Oslo", LocalDate.of(2030, 5, 5), 10, 50.0));
+        IOException ex = assertThrows(IOException.class, () -> manager.storeFlights(fbs, List.of(1, 8)));
+        assertTrue(ex.getMessage().contains("Flight #8"));
+        assertEquals(100.0, load().getFlightByID(1).getPrice()); // No slot written
+    }
+
+    private FlightBookingSystem load() throws IOException, FlightBookingSystemException {
+        FlightBookingSystem loaded = new FlightBookingSystem();
+        manager.loadData(loaded);
+        return loaded;
+    }
+}
@@ -4,12 +4,21 @@ import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * The {@code FlightSearch} command allows users to search for flights based on
  * multiple criteria such as flight number, origin, destination, departure date, and available seats.
+ * <p>
+ * Flight number, origin and destination are looked up in the text and route indexes
+ * of the system, as is a departure date given as a whole date, month ({@code 2025-06})
+ * or year; only the remaining criteria are checked against each flight found.
  */
 public class FlightSearch implements Command {
 
@@ -45,13 +54,16 @@ public class FlightSearch implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        List<Flight> flights = flightBookingSystem.getFlights()
+        LocalDate[] range = dateRange(departureDate);
+        boolean dateInRange = range != null || departureDate.isEmpty();
+        List<Flight> flights = flightBookingSystem.searchFlights( // Searches may look at departed flights
+                flightNumber, origin, destination,
+                range != null ? range[0] : null,
+                range != null ? range[1] : null)
             .stream()
-            .filter(flight -> (flightNumber.isEmpty() || flight.getFlightNumber().contains(flightNumber)) &&
-                             (origin.isEmpty() || flight.getOrigin().contains(origin)) &&
-                             (destination.isEmpty() || flight.getDestination().contains(destination)) &&
-                             (departureDate.isEmpty() || flight.getDepartureDate().toString().contains(departureDate)) &&
-                             (availableSeats == -1 || (flight.getCapacity() - flight.getPassengers().size()) >= availableSeats))
+            .filter(flight -> (dateInRange || flight.getDepartureDate().toString().contains(departureDate)) &&
+                             (availableSeats == -1 || flight.getAvailableSeats() >= availableSeats))
+            .sorted(Comparator.comparingInt(Flight::getId)) // Listed in ID order, as before the index
             .collect(Collectors.toList());
 
         if (flights.isEmpty()) {
@@ -61,4 +73,31 @@ public class FlightSearch implements Command {
         // Set the filtered list of flights
         flightBookingSystem.setFilteredFlights(flights);
     }
+
+    /**
+     * Turns a departure date criterion that names a whole date, month or year into
+     * the first and last dates it matches. Every date containing such text falls in
+     * that range, since a year is the only run of four digits in a date.
+     *
+     * @return The first and last dates, or null if the text is not a date, month or year.
+     */
+    private static LocalDate[] dateRange(String text) {
+        try {
+            if (text.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                LocalDate date = LocalDate.parse(text);
+                return new LocalDate[]{date, date};
+            }
+            if (text.matches("\\d{4}-\\d{2}")) {
+                YearMonth month = YearMonth.parse(text);
+                return new LocalDate[]{month.atDay(1), month.atEndOfMonth()};
+            }
+            if (text.matches("\\d{4}")) {
+                Year year = Year.parse(text);
+                return new LocalDate[]{year.atDay(1), year.atMonth(12).atEndOfMonth()};
+            }
+        } catch (DateTimeParseException ex) {
+            // Not a real date, so it is matched as text instead
+        }
+        return null;
+    }
 }
@@ -0,0 +1,228 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces one or more data files together, so a crash leaves either all of the
+ * old files or all of the new ones and never a mix of the two.
+ * <p>
+ * A commit is made in four steps:
+ * <ol>
+ * <li>every new file is written beside its target as {@code <target>.gen<n>},
+ * and all of them are synced to disk;</li>
+ * <li>a manifest naming generation {@code n} and its files is written, synced and
+ * renamed into place, which is the point the whole generation becomes committed;</li>
+ * <li>each new file is renamed over its target;</li>
+ * <li>the directories are synced so the renames are durable.</li>
+ * </ol>
+ * {@link #recover()} runs before data is loaded. It finishes the renames of the
+ * generation named by the manifest and deletes the files of a later generation that
+ * never reached its manifest, so loading always sees the last complete generation.
+ * <p>
+ * A generation with a single file needs no manifest, since renaming that one file
+ * is already atomic. Syncs are only paid once per commit rather than once per file
+ * change, so callers should gather everything that changed into one commit.
+ */
+final class GenerationCommit {
+
+    private static final String DIRECTORY = DataManager.DATA_DIRECTORY;
+    private static final String MANIFEST = DIRECTORY + "/generation.manifest";
+    private static final String SEPARATOR = "::";
+    private static final String GENERATION = "GENERATION";
+
+    private static final Object LOCK = new Object(); // Serialises commits and recovery
+
+    /**
+     * Writes the new contents of one file to the given path.
+     */
+    interface ContentWriter {
+
+        /**
+         * Writes the file.
+         *
+         * @param path The path to write to, which does not exist yet.
+         * @throws IOException If the file cannot be written.
+         */
+        void write(Path path) throws IOException;
+    }
+
+    private final Map<String, ContentWriter> files = new LinkedHashMap<>();
+
+    /**
+     * Adds a file to the generation. Nothing is written until {@link #commit()}.
+     *
+     * @param resource The path of the file to replace.
+     * @param writer Writes the new contents of the file.
+     */
+    void add(String resource, ContentWriter writer) {
+        files.put(resource, writer);
+    }
+
+    /**
+     * Writes every added file and replaces their targets atomically.
+     *
+     * @throws IOException If a file cannot be written. Unless the manifest has already
+     *         been written, the targets are left as they were.
+     */
+    void commit() throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        synchronized (LOCK) {
+            int generation = readGeneration() + 1;
+            List<Path> targets = new ArrayList<>();
+            List<Path> pending = new ArrayList<>();
+            for (Map.Entry<String, ContentWriter> file : files.entrySet()) {
+                Path target = Paths.get(file.getKey());
+                Path temp = Paths.get(file.getKey() + ".gen" + generation);
+                Files.deleteIfExists(temp);
+                file.getValue().write(temp);
+                sync(temp);
+                targets.add(target);
+                pending.add(temp);
+            }
+
+            if (targets.size() > 1) {
+                writeManifest(generation, targets, pending);
+            }
+            Set<Path> directories = new LinkedHashSet<>();
+            for (int i = 0; i < targets.size(); i++) {
+                Files.move(pending.get(i), targets.get(i), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                directories.add(targets.get(i).toAbsolutePath().getParent());
+            }
+            for (Path directory : directories) {
+                syncDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Brings the data files to the last complete generation. Files of a committed
+     * generation that were not yet renamed into place are renamed now, and files
+     * left behind by a generation that never committed are deleted.
+     *
+     * @throws IOException If the data files cannot be repaired.
+     */
+    static void recover() throws IOException {
+        synchronized (LOCK) {
+            Path manifest = Paths.get(MANIFEST);
+            if (Files.exists(manifest)) {
+                Set<Path> directories = new LinkedHashSet<>();
+                for (String line : Files.readAllLines(manifest)) {
+                    String[] properties = line.split(SEPARATOR, -1);
+                    if (properties.length < 2 || properties[0].equals(GENERATION)) {
+                        continue;
+                    }
+                    Path pending = Paths.get(properties[1]);
+                    if (Files.exists(pending)) {
+                        Path target = Paths.get(properties[0]);
+                        Files.move(pending, target, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                        directories.add(target.toAbsolutePath().getParent());
+                    }
+                }
+                for (Path directory : directories) {
+                    syncDirectory(directory);
+                }
+            }
+
+            removeLeftovers(Paths.get(DIRECTORY));
+        }
+    }
+
+    /**
+     * Deletes the files a generation that never committed left behind in a directory.
+     * {@link #recover()} does this for the main data directory; data managers that keep
+     * files elsewhere call it for their own directory after recovery.
+     *
+     * @param directory The directory to clean up.
+     * @throws IOException If a leftover file cannot be deleted.
+     */
+    static void removeLeftovers(Path directory) throws IOException {
+        synchronized (LOCK) { // Never mistakes the files of a commit in progress for leftovers
+            if (!Files.isDirectory(directory)) {
+                return;
+            }
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*.gen*")) {
+                for (Path leftover : leftovers) {
+                    if (leftover.getFileName().toString().matches(".*\\.gen\\d+")) {
+                        Files.delete(leftover); // Part of a generation that never committed
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of the last generation written to the manifest, or 0 if there is none.
+     */
+    private static int readGeneration() throws IOException {
+        Path manifest = Paths.get(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(manifest)) {
+            String[] properties = line.split(SEPARATOR, -1);
+            if (properties.length >= 2 && properties[0].equals(GENERATION)) {
+                try {
+                    return Integer.parseInt(properties[1]);
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes and syncs the manifest beside the old one, then renames it into place.
+     */
+    private static void writeManifest(int generation, List<Path> targets, List<Path> pending) throws IOException {
+        Path manifest = Paths.get(MANIFEST);
+        Path temp = Paths.get(MANIFEST + ".tmp");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(temp))) {
+            out.println(GENERATION + SEPARATOR + generation + SEPARATOR);
+            for (int i = 0; i < targets.size(); i++) {
+                out.println(targets.get(i) + SEPARATOR + pending.get(i) + SEPARATOR);
+            }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + temp);
+            }
+        }
+        sync(temp);
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(Paths.get(DIRECTORY));
+    }
+
+    private static void sync(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Syncs a directory so renames and new files within it survive a crash.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Directories cannot be synced on every platform; the renames are still atomic
+        }
+    }
+}
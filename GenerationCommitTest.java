@@ -0,0 +1,89 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GenerationCommitTest {
+
+    private static final Path DIRECTORY = BookingDataManagerTest.DIRECTORY; // Also points the data classes at it
+
+    private Path flights;
+    private Path customers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        BookingDataManagerTest.clearDirectory();
+        flights = DIRECTORY.resolve("flights.txt");
+        customers = DIRECTORY.resolve("customers.txt");
+        Files.write(flights, List.of("old flights"));
+        Files.write(customers, List.of("old customers"));
+    }
+
+    @Test
+    void testCommitReplacesEveryFile() throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        commit.add(flights.toString(), path -> Files.write(path, List.of("new flights")));
+        commit.add(customers.toString(), path -> Files.write(path, List.of("new customers")));
+        commit.commit();
+
+        assertEquals(List.of("new flights"), Files.readAllLines(flights));
+        assertEquals(List.of("new customers"), Files.readAllLines(customers));
+        assertEquals(0, leftovers());
+    }
+
+    @Test
+    void testFailedCommitLeavesOldFiles() throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        commit.add(flights.toString(), path -> Files.write(path, List.of("new flights")));
+        commit.add(customers.toString(), path -> {
+            throw new IOException("Disk full");
+        });
+        assertThrows(IOException.class, commit::commit);
+
+        GenerationCommit.recover();
+        assertEquals(List.of("old flights"), Files.readAllLines(flights));
+        assertEquals(List.of("old customers"), Files.readAllLines(customers));
+        assertEquals(0, leftovers());
+    }
+
+    @Test
+    void testRecoverFinishesCommittedGeneration() throws IOException {
+        // A crash after the manifest was written but before any file was renamed
+        Path pendingFlights = DIRECTORY.resolve("flights.txt.gen7");
+        Path pendingCustomers = DIRECTORY.resolve("customers.txt.gen7");
+        Files.write(pendingFlights, List.of("new flights"));
+        Files.write(pendingCustomers, List.of("new customers"));
+        Files.write(DIRECTORY.resolve("generation.manifest"), List.of(
+                "GENERATION::7::",
+                flights + "::" + pendingFlights + "::",
+                customers + "::" + pendingCustomers + "::"));
+
+        GenerationCommit.recover();
+        assertEquals(List.of("new flights"), Files.readAllLines(flights));
+        assertEquals(List.of("new customers"), Files.readAllLines(customers));
+        assertEquals(0, leftovers());
+    }
+
+    @Test
+    void testRecoverDiscardsUncommittedGeneration() throws IOException {
+        // A crash while the files of generation 1 were written, before its manifest
+        Files.write(DIRECTORY.resolve("flights.txt.gen1"), List.of("new flights"));
+
+        GenerationCommit.recover();
+        assertEquals(List.of("old flights"), Files.readAllLines(flights));
+        assertEquals(0, leftovers());
+    }
+
+    private static long leftovers() throws IOException {
+        try (var files = Files.list(DIRECTORY)) {
+            return files.filter(path -> path.getFileName().toString().matches(".*\\.gen\\d+")).count();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out increasing IDs in constant time without locking. The sequence only
+ * remembers the highest ID given out or seen, so it must be advanced past every
+ * existing ID before it is used, and IDs freed by removing records are never
+ * handed out again.
+ */
+final class IdSequence {
+
+    private final AtomicInteger highest = new AtomicInteger();
+
+    /**
+     * Gets the next ID.
+     *
+     * @return An ID higher than every ID given out or seen so far.
+     */
+    int next() {
+        return highest.incrementAndGet();
+    }
+
+    /**
+     * Reserves a block of consecutive IDs.
+     *
+     * @param count The number of IDs to reserve.
+     * @return The first ID of the block.
+     */
+    int reserve(int count) {
+        return highest.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Makes sure an ID that is already in use is never given out.
+     *
+     * @param id The ID in use.
+     */
+    void advanceTo(int id) {
+        highest.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Gets the highest ID given out or seen so far.
+     *
+     * @return The highest ID, or 0 if there has been none.
+     */
+    int getHighest() {
+        return highest.get();
+    }
+}
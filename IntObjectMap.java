@@ -0,0 +1,442 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A map from {@code int} keys to objects that stores its keys unboxed.
+ * <p>
+ * Entries are kept in two dense arrays, one of keys and one of values, in the order
+ * they were added. An open-addressing table of {@code int} positions into those
+ * arrays, probed linearly, finds a key without allocating anything. Removing an
+ * entry leaves a gap that is closed the next time the arrays grow.
+ * <p>
+ * A map created in key order iterates its entries by ascending key, like a
+ * {@code TreeMap}. Keys added in ascending order, as IDs usually are, keep the
+ * arrays in order for free; after any other key is added the arrays are sorted once,
+ * the next time the entries are read in order.
+ * <p>
+ * The {@code int} methods should be preferred; the {@code Map} methods box their
+ * keys. Null values are not allowed. Like {@code TreeMap}, the map is not
+ * synchronized, although sorting locks the map itself, so a reader restoring the
+ * order cannot overlap a thread that holds the map's lock.
+ *
+ * @param <V> The type of value stored.
+ */
+final class IntObjectMap<V> extends AbstractMap<Integer, V> {
+
+    private static final int EMPTY = 0; // Slot never used
+    private static final int REMOVED = -1; // Slot whose entry was removed
+    private static final int MIN_CAPACITY = 8;
+
+    private final boolean keyOrder;
+    private int[] table; // Position in the entry arrays plus one, EMPTY or REMOVED
+    private int[] keys;
+    private Object[] values; // Null where an entry was removed
+    private int count; // Entries used, including removed ones
+    private int size;
+    private boolean inOrder = true; // Whether the entries are in ascending key order
+    private int modCount;
+
+    /**
+     * Creates an empty map.
+     *
+     * @param keyOrder True to iterate in ascending key order, false to iterate in
+     *        the order the entries were added.
+     */
+    IntObjectMap(boolean keyOrder) {
+        this.keyOrder = keyOrder;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Gets the value stored under a key.
+     *
+     * @param key The key.
+     * @return The value, or null if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = probe(key);
+        return slot < 0 ? null : (V) values[table[slot] - 1];
+    }
+
+    /**
+     * Checks whether a key is in the map.
+     *
+     * @param key The key.
+     * @return True if the map holds a value for the key.
+     */
+    public boolean containsKey(int key) {
+        return probe(key) >= 0;
+    }
+
+    /**
+     * Stores a value under a key, replacing any value already there.
+     *
+     * @param key The key.
+     * @param value The value, which must not be null.
+     * @return The value that was replaced, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value);
+        int slot = probe(key);
+        if (slot >= 0) {
+            int entry = table[slot] - 1;
+            V previous = (V) values[entry];
+            values[entry] = value;
+            return previous;
+        }
+        append(key, value);
+        return null;
+    }
+
+    /**
+     * Stores a value under a key unless the key is already in the map.
+     *
+     * @param key The key.
+     * @param value The value, which must not be null.
+     * @return The value already stored under the key, or null if the value was added.
+     */
+    public V putIfAbsent(int key, V value) {
+        Objects.requireNonNull(value);
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        append(key, value);
+        return null;
+    }
+
+    /**
+     * Removes a key and its value.
+     *
+     * @param key The key.
+     * @return The value that was removed, or null if the key was not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = probe(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = table[slot] - 1;
+        V previous = (V) values[entry];
+        values[entry] = null;
+        table[slot] = REMOVED;
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * Gets the highest key in the map. Only maps kept in key order support this.
+     *
+     * @return The highest key.
+     * @throws NoSuchElementException If the map is empty.
+     */
+    public int lastKey() {
+        if (!keyOrder) {
+            throw new UnsupportedOperationException("The map is not kept in key order.");
+        }
+        restoreOrder();
+        for (int i = count - 1; i >= 0; i--) {
+            if (values[i] != null) {
+                return keys[i];
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get((int) (Integer) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && containsKey((int) (Integer) key);
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put((int) key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer ? remove((int) (Integer) key) : null;
+    }
+
+    @Override
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        count = 0;
+        size = 0;
+        inOrder = true;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        restoreOrder();
+        int expected = modCount;
+        for (int i = 0; i < count; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i], (V) values[i]);
+                if (modCount != expected) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a live view of the values, which iterates without boxing any key.
+     *
+     * @return The values, in the order of the map.
+     */
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new EntryIterator<V>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V get(int entry) {
+                        return (V) values[entry];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void forEach(Consumer<? super V> action) {
+                restoreOrder();
+                int expected = modCount;
+                for (int i = 0; i < count; i++) {
+                    if (values[i] != null) {
+                        action.accept((V) values[i]);
+                        if (modCount != expected) {
+                            throw new ConcurrentModificationException();
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<Entry<Integer, V>>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new EntryIterator<Entry<Integer, V>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Entry<Integer, V> get(int entry) {
+                        return new SimpleImmutableEntry<>(keys[entry], (V) values[entry]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates the entries that have not been removed, in the order of the map.
+     */
+    private abstract class EntryIterator<T> implements Iterator<T> {
+
+        private int next;
+        private int last = -1;
+        private int expected;
+
+        EntryIterator() {
+            restoreOrder();
+            expected = modCount;
+            skipRemoved();
+        }
+
+        abstract T get(int entry);
+
+        @Override
+        public boolean hasNext() {
+            return next < count;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expected) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= count) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            skipRemoved();
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0 || values[last] == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expected) {
+                throw new ConcurrentModificationException();
+            }
+            IntObjectMap.this.remove(keys[last]); // Entries do not move, so the iteration can go on
+            expected = modCount;
+        }
+
+        private void skipRemoved() {
+            while (next < count && values[next] == null) {
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Finds the slot holding a key.
+     *
+     * @return The slot, or minus one minus the slot a new entry should use.
+     */
+    private int probe(int key) {
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        int firstRemoved = -1;
+        while (true) {
+            int entry = table[slot];
+            if (entry == EMPTY) {
+                return -1 - (firstRemoved >= 0 ? firstRemoved : slot);
+            }
+            if (entry == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = slot;
+                }
+            } else if (keys[entry - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds an entry for a key that is not in the map, growing or compacting the
+     * arrays first if they are full.
+     */
+    private void append(int key, V value) {
+        if (count == keys.length) {
+            rebuild(Math.max(MIN_CAPACITY, size * 2), false);
+        }
+        if (count > 0 && key < keys[count - 1]) {
+            inOrder = false;
+        }
+        keys[count] = key;
+        values[count] = value;
+        table[-1 - probe(key)] = count + 1;
+        count++;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Sorts the entries by key if the map is kept in key order and a key was added
+     * out of order since the last sort.
+     */
+    private void restoreOrder() {
+        if (keyOrder && !inOrder) {
+            synchronized (this) {
+                if (!inOrder) {
+                    rebuild(keys.length, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the entries that have not been removed into arrays of the given capacity,
+     * sorting them by key if asked, and rebuilds the table for them.
+     */
+    private void rebuild(int capacity, boolean sort) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldCount = count;
+
+        // Pack each key with its position so one sort orders them by key, then by age
+        long[] order = new long[size];
+        int live = 0;
+        for (int i = 0; i < oldCount; i++) {
+            if (oldValues[i] != null) {
+                order[live++] = ((long) oldKeys[i] << 32) | i;
+            }
+        }
+        if (sort) {
+            Arrays.sort(order);
+        }
+
+        allocate(capacity);
+        for (long packed : order) {
+            int i = (int) packed;
+            keys[count] = oldKeys[i];
+            values[count] = oldValues[i];
+            table[-1 - probe(oldKeys[i])] = count + 1;
+            count++;
+        }
+        if (sort) {
+            inOrder = true;
+        } else {
+            // Gaps are closed without reordering, so only a sort restores key order
+            inOrder = inOrder || count < 2;
+        }
+        modCount++;
+    }
+
+    /**
+     * Allocates empty arrays for the given number of entries, with a table at most
+     * three quarters full once they are all used, so every probe finds an empty slot.
+     */
+    private void allocate(int capacity) {
+        int tableSize = MIN_CAPACITY * 2;
+        while (tableSize * 3 / 4 <= capacity) {
+            tableSize <<= 1;
+        }
+        table = new int[tableSize];
+        keys = new int[capacity];
+        values = new Object[capacity];
+        count = 0;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
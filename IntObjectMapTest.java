@@ -0,0 +1,78 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntObjectMapTest {
+
+    @Test
+    void testPutGetAndRemove() {
+        IntObjectMap<String> map = new IntObjectMap<>(true);
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(2, "two"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("two", map.putIfAbsent(2, "dos"));
+
+        assertEquals(2, map.size());
+        assertEquals("uno", map.get(1));
+        assertTrue(map.containsKey(2));
+        assertNull(map.get(3));
+
+        assertEquals("two", map.remove(2));
+        assertNull(map.remove(2));
+        assertFalse(map.containsKey(2));
+        assertEquals(1, map.size());
+        assertEquals(1, map.lastKey());
+    }
+
+    @Test
+    void testIteratesInKeyOrder() {
+        IntObjectMap<String> map = new IntObjectMap<>(true);
+        for (int id : new int[] {5, 3, 9, 1, 7}) {
+            map.put(id, "F" + id);
+        }
+        map.remove(9);
+
+        assertEquals(List.of("F1", "F3", "F5", "F7"), new ArrayList<>(map.values()));
+        assertEquals(7, map.lastKey());
+
+        Iterator<String> it = map.values().iterator();
+        it.next();
+        it.remove();
+        assertEquals(List.of("F3", "F5", "F7"), new ArrayList<>(map.values()));
+        assertThrows(UnsupportedOperationException.class, () -> new IntObjectMap<>(false).lastKey());
+    }
+
+    @Test
+    void testMatchesTreeMap() {
+        IntObjectMap<String> map = new IntObjectMap<>(true);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "V" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals((int) expected.lastKey(), map.lastKey());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        List<Integer> keys = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : map.entrySet()) {
+            keys.add(entry.getKey());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+    }
+}
@@ -0,0 +1,370 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Manages flight, customer and booking data in an embedded SQL database that
+ * runs inside the application, such as an H2 file database.
+ * <p>
+ * Rows are written with {@code MERGE} upserts sent in prepared-statement batches,
+ * so storing a change only touches the rows that changed instead of rewriting a
+ * whole file. Every table is keyed on its IDs and bookings are also indexed by
+ * flight, so looking up a single row never scans a table. Each store runs in one
+ * transaction, which the database makes atomic and durable.
+ * <p>
+ * Booking changes are still journaled by the commands and replayed on load; when
+ * the journal is folded in, only the bookings it names are upserted or deleted.
+ * <p>
+ * The SQL is written for H2, whose driver ({@code com.h2database:h2}) must be on
+ * the classpath.
+ */
+public class JdbcDataManager implements DataManager {
+
+    private static final int BATCH_SIZE = 1000; // Rows sent to the database per round trip
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS flights (id INT PRIMARY KEY, flight_number VARCHAR(255) NOT NULL, "
+            + "origin VARCHAR(255) NOT NULL, destination VARCHAR(255) NOT NULL, departure_date DATE NOT NULL, "
+            + "capacity INT NOT NULL, price DOUBLE NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS flights_number_date ON flights (flight_number, departure_date)",
+        "CREATE TABLE IF NOT EXISTS customers (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+            + "phone VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS bookings (id INT PRIMARY KEY, customer_id INT NOT NULL, "
+            + "outbound_flight_id INT NOT NULL, return_flight_id INT, booking_date DATE NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS bookings_outbound ON bookings (outbound_flight_id)",
+        "CREATE INDEX IF NOT EXISTS bookings_return ON bookings (return_flight_id)"
+    };
+
+    private static final String MERGE_FLIGHT = "MERGE INTO flights (id, flight_number, origin, destination, "
+            + "departure_date, capacity, price) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_FLIGHT = "DELETE FROM flights WHERE id = ?";
+    private static final String MERGE_CUSTOMER = "MERGE INTO customers (id, name, phone, email) KEY (id) "
+            + "VALUES (?, ?, ?, ?)";
+    private static final String DELETE_CUSTOMER = "DELETE FROM customers WHERE id = ?";
+    private static final String MERGE_BOOKING = "MERGE INTO bookings (id, customer_id, outbound_flight_id, "
+            + "return_flight_id, booking_date) KEY (id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_BOOKING = "DELETE FROM bookings WHERE id = ?";
+
+    private final String url;
+    private volatile boolean schemaCreated;
+
+    /**
+     * Creates a data manager for the database at the given JDBC URL. The tables
+     * are created the first time the database is used.
+     *
+     * @param url The JDBC URL of the database, for example {@code jdbc:h2:./resources/data/bookingsystem}.
+     */
+    public JdbcDataManager(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Loads every flight, customer and booking from the database into the system.
+     * The booking journal is not replayed.
+     *
+     * @param fbs The flight booking system to populate.
+     * @throws IOException If the database cannot be read.
+     * @throws FlightBookingSystemException If a booking refers to a missing flight or customer.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        try (Connection connection = open(); Statement statement = connection.createStatement()) {
+            try (ResultSet rows = statement.executeQuery("SELECT id, flight_number, origin, destination, "
+                    + "departure_date, capacity, price FROM flights ORDER BY id")) {
+                List<Flight> flights = new ArrayList<>();
+                while (rows.next()) {
+                    flights.add(new Flight(rows.getInt(1), rows.getString(2), rows.getString(3),
+                            rows.getString(4), rows.getDate(5).toLocalDate(), rows.getInt(6), rows.getDouble(7)));
+                }
+                fbs.addLoadedFlights(flights);
+            }
+
+            List<Customer> customers = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery("SELECT id, name, phone, email FROM customers ORDER BY id")) {
+                while (rows.next()) {
+                    customers.add(new Customer(rows.getInt(1), rows.getString(2), rows.getString(3), rows.getString(4)));
+                }
+            }
+            fbs.addLoadedCustomers(customers);
+
+            try (ResultSet rows = statement.executeQuery("SELECT customer_id, outbound_flight_id, return_flight_id, "
+                    + "booking_date, id FROM bookings ORDER BY id")) {
+                int row = 0;
+                while (rows.next()) {
+                    int returnFlightId = rows.getInt(3);
+                    Integer returnFlight = rows.wasNull() ? null : returnFlightId;
+                    BookingDataManager.linkBooking(fbs, rows.getInt(5), rows.getInt(1), rows.getInt(2), returnFlight,
+                            rows.getDate(4).toLocalDate(), ++row);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IOException("Failed to load data from " + url, ex);
+        }
+    }
+
+    /**
+     * Writes every flight, customer and booking to the database and removes the rows
+     * of anything that is no longer in the system, all in one transaction.
+     *
+     * @param fbs The flight booking system containing the data to be stored.
+     * @throws IOException If the database cannot be written.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        storeChanges(fbs, null, null, null);
+    }
+
+    /**
+     * Writes only the given flights, customers and bookings in one transaction. One
+     * that is no longer in the system has its row deleted.
+     *
+     * @param fbs The flight booking system containing the data to be stored.
+     * @param flightIds The IDs of the flights to write, an empty collection for none, or null for all.
+     * @param customerIds The IDs of the customers to write, an empty collection for none, or null for all.
+     * @param bookingIds The IDs of the bookings to write, an empty collection for none, or null for all.
+     * @throws IOException If the database cannot be written.
+     */
+    public void storeChanges(FlightBookingSystem fbs, Collection<Integer> flightIds, Collection<Integer> customerIds,
+            Collection<Integer> bookingIds) throws IOException {
+        try (Connection connection = open()) {
+            connection.setAutoCommit(false);
+            try {
+                storeFlights(connection, fbs, flightIds);
+                storeCustomers(connection, fbs, customerIds);
+                storeBookings(connection, fbs, bookingIds);
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new IOException("Failed to store data in " + url, ex);
+        }
+    }
+
+    /**
+     * Writes only the given bookings. One that is no longer in the system, because
+     * it was cancelled, has its row deleted.
+     *
+     * @param fbs The flight booking system containing the bookings.
+     * @param bookingIds The IDs of the bookings to write, or null for all.
+     * @throws IOException If the database cannot be written.
+     */
+    public void storeBookings(FlightBookingSystem fbs, Collection<Integer> bookingIds) throws IOException {
+        storeChanges(fbs, List.of(), List.of(), bookingIds);
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try {
+            createSchema(connection);
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+        return connection;
+    }
+
+    /**
+     * Creates any missing table or index the first time this manager connects.
+     */
+    private void createSchema(Connection connection) throws SQLException {
+        if (schemaCreated) {
+            return;
+        }
+        synchronized (this) {
+            if (schemaCreated) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            schemaCreated = true;
+        }
+    }
+
+    private static void storeFlights(Connection connection, FlightBookingSystem fbs, Collection<Integer> ids)
+            throws SQLException {
+        if (ids != null && ids.isEmpty()) {
+            return;
+        }
+        List<Flight> flights = new ArrayList<>();
+        Set<Integer> removed = new HashSet<>();
+        if (ids == null) {
+            flights = fbs.getFlights();
+            removed = selectIds(connection, "SELECT id FROM flights");
+            for (Flight flight : flights) {
+                removed.remove(flight.getId());
+            }
+        } else {
+            for (int id : ids) { // Only the changed flights are looked up
+                Flight flight = fbs.findLoadedFlight(id);
+                if (flight != null) {
+                    flights.add(flight);
+                } else {
+                    removed.add(id);
+                }
+            }
+        }
+
+        try (PreparedStatement merge = connection.prepareStatement(MERGE_FLIGHT)) {
+            int pending = 0;
+            for (Flight flight : flights) {
+                merge.setInt(1, flight.getId());
+                merge.setString(2, flight.getFlightNumber());
+                merge.setString(3, flight.getOrigin());
+                merge.setString(4, flight.getDestination());
+                merge.setDate(5, Date.valueOf(flight.getDepartureDate()));
+                merge.setInt(6, flight.getCapacity());
+                merge.setDouble(7, flight.getPrice());
+                pending = addBatch(merge, pending);
+            }
+            merge.executeBatch();
+        }
+        deleteIds(connection, DELETE_FLIGHT, removed);
+    }
+
+    private static void storeCustomers(Connection connection, FlightBookingSystem fbs, Collection<Integer> ids)
+            throws SQLException {
+        if (ids != null && ids.isEmpty()) {
+            return;
+        }
+        List<Customer> customers = new ArrayList<>();
+        Set<Integer> removed = new HashSet<>();
+        if (ids == null) {
+            customers = fbs.getCustomers();
+            removed = selectIds(connection, "SELECT id FROM customers");
+            for (Customer customer : customers) {
+                removed.remove(customer.getId());
+            }
+        } else {
+            for (int id : ids) {
+                Customer customer = fbs.findCustomer(id);
+                if (customer != null) {
+                    customers.add(customer);
+                } else {
+                    removed.add(id);
+                }
+            }
+        }
+
+        try (PreparedStatement merge = connection.prepareStatement(MERGE_CUSTOMER)) {
+            int pending = 0;
+            for (Customer customer : customers) {
+                merge.setInt(1, customer.getId());
+                merge.setString(2, customer.getName());
+                merge.setString(3, customer.getPhone());
+                merge.setString(4, customer.getEmail());
+                pending = addBatch(merge, pending);
+            }
+            merge.executeBatch();
+        }
+        deleteIds(connection, DELETE_CUSTOMER, removed);
+    }
+
+    /**
+     * Upserts the given bookings and deletes the rows of those that were cancelled.
+     */
+    private static void storeBookings(Connection connection, FlightBookingSystem fbs, Collection<Integer> ids)
+            throws SQLException {
+        if (ids != null && ids.isEmpty()) {
+            return;
+        }
+        List<Booking> bookings = new ArrayList<>();
+        Set<Integer> removed = new HashSet<>();
+        if (ids == null) {
+            removed = selectIds(connection, "SELECT id FROM bookings");
+            for (Customer customer : fbs.getCustomers()) {
+                for (Booking booking : customer.getBookings()) {
+                    bookings.add(booking);
+                    removed.remove(booking.getId());
+                }
+            }
+        } else {
+            for (int id : ids) {
+                Booking booking = fbs.findBooking(id);
+                if (booking != null) {
+                    bookings.add(booking);
+                } else {
+                    removed.add(id);
+                }
+            }
+        }
+
+        try (PreparedStatement merge = connection.prepareStatement(MERGE_BOOKING)) {
+            int pending = 0;
+            for (Booking booking : bookings) {
+                merge.setInt(1, booking.getId());
+                merge.setInt(2, booking.getCustomer().getId());
+                merge.setInt(3, booking.getOutboundFlight().getId());
+                if (booking.getReturnFlight() != null) {
+                    merge.setInt(4, booking.getReturnFlight().getId());
+                } else {
+                    merge.setNull(4, Types.INTEGER);
+                }
+                merge.setDate(5, Date.valueOf(booking.getBookingDate()));
+                pending = addBatch(merge, pending);
+            }
+            merge.executeBatch();
+        }
+        deleteIds(connection, DELETE_BOOKING, removed);
+    }
+
+    private static Set<Integer> selectIds(Connection connection, String sql) throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                ids.add(rows.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    private static void deleteIds(Connection connection, String sql, Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement delete = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (int id : ids) {
+                delete.setInt(1, id);
+                pending = addBatch(delete, pending);
+            }
+            delete.executeBatch();
+        }
+    }
+
+    /**
+     * Adds the current parameters to the batch, sending it once it is full.
+     *
+     * @return The number of rows now waiting in the batch.
+     */
+    private static int addBatch(PreparedStatement statement, int pending) throws SQLException {
+        statement.addBatch();
+        if (++pending < BATCH_SIZE) {
+            return pending;
+        }
+        statement.executeBatch();
+        return 0;
+    }
+}
@@ -0,0 +1,107 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the SQL against a real H2 file database, so the H2 driver must be on the
+ * test classpath.
+ */
+public class JdbcDataManagerTest {
+
+    private static final Path DIRECTORY = BookingDataManagerTest.DIRECTORY; // Also points the data classes at it
+
+    private final String url = "jdbc:h2:" + DIRECTORY.toAbsolutePath() + "/bookingsystem";
+    private final JdbcDataManager manager = new JdbcDataManager(url);
+    private FlightBookingSystem fbs;
+
+    @BeforeEach
+    void setUp() throws IOException, FlightBookingSystemException {
+        BookingDataManagerTest.clearDirectory();
+        fbs = new FlightBookingSystem();
+        Flight outbound = new Flight(1, "FL100", "London", "Paris", LocalDate.of(2030, 1, 10), 10, 100.0);
+        Flight inbound = new Flight(2, "FL200", "Paris", "London", LocalDate.of(2030, 1, 20), 10, 110.0);
+        fbs.addFlight(outbound);
+        fbs.addFlight(inbound);
+        fbs.addCustomer(new Customer(3, "Roshan", "111111111", "roshan@example.com"));
+        fbs.addCustomer(new Customer(4, "Sudip", "999999999", "sudip@example.com"));
+        book(5, fbs.getCustomerByID(3), outbound, inbound);
+        book(6, fbs.getCustomerByID(4), outbound, null);
+    }
+
+    @Test
+    void testStoreAndLoadEverything() throws IOException, FlightBookingSystemException {
+        manager.storeData(fbs);
+
+        FlightBookingSystem loaded = load();
+        assertEquals(2, loaded.getFlightCount());
+        assertEquals("Paris", loaded.getFlightByID(2).getOrigin());
+        assertEquals(2, loaded.getCustomerCount());
+        assertEquals("sudip@example.com", loaded.getCustomerByID(4).getEmail());
+
+        Booking booking = loaded.getBookingByID(5);
+        assertEquals(3, booking.getCustomer().getId());
+        assertEquals(2, booking.getReturnFlight().getId());
+        assertNull(loaded.getBookingByID(6).getReturnFlight());
+        assertEquals(2, loaded.getFlightByID(1).getPassengerCount());
+    }
+
+    @Test
+    void testStoreChangesWritesOnlyGivenRows() throws IOException, FlightBookingSystemException {
+        manager.storeData(fbs);
+
+        fbs.getFlightByID(1).setPrice(80.0);
+        fbs.getFlightByID(2).setPrice(1.0); // Not named below, so never written
+        Booking cancelled = fbs.getBookingByID(6);
+        fbs.removeBooking(cancelled);
+        cancelled.getCustomer().removeBooking(cancelled);
+        cancelled.getOutboundFlight().removePassenger(cancelled.getCustomer());
+        fbs.removeCustomer(4);
+        manager.storeChanges(fbs, Set.of(1), Set.of(4), Set.of(6));
+
+        FlightBookingSystem loaded = load();
+        assertEquals(80.0, loaded.getFlightByID(1).getPrice());
+        assertEquals(110.0, loaded.getFlightByID(2).getPrice());
+        assertEquals(1, loaded.getCustomerCount());
+        assertThrows(FlightBookingSystemException.class, () -> loaded.getBookingByID(6));
+        assertEquals(3, loaded.getBookingByID(5).getCustomer().getId());
+    }
+
+    @Test
+    void testBookingsAreKeyedById() throws IOException, FlightBookingSystemException {
+        book(7, fbs.getCustomerByID(3), fbs.getFlightByID(1), null); // Same customer and outbound flight as #5
+        manager.storeData(fbs);
+
+        FlightBookingSystem loaded = load();
+        assertEquals(2, loaded.getCustomerByID(3).getBookingCount());
+        assertEquals(3, loaded.getBookingByID(7).getCustomer().getId());
+    }
+
+    private FlightBookingSystem load() throws IOException, FlightBookingSystemException {
+        FlightBookingSystem loaded = new FlightBookingSystem();
+        manager.loadData(loaded);
+        return loaded;
+    }
+
+    private void book(int id, Customer customer, Flight outbound, Flight inbound) throws FlightBookingSystemException {
+        Booking booking = new Booking(id, customer, outbound, inbound, LocalDate.of(2029, 12, 1));
+        fbs.addBooking(booking);
+        customer.addBooking(booking);
+        outbound.addPassenger(customer);
+        if (inbound != null) {
+            inbound.addPassenger(customer);
+        }
+    }
+}
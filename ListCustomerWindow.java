@@ -1,13 +1,11 @@
 package bcu.cmp5332.bookingsystem.gui;
 
-import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.List;
 
 public class ListCustomerWindow extends JFrame implements ActionListener {
     
@@ -42,18 +40,16 @@ public class ListCustomerWindow extends JFrame implements ActionListener {
     }
     
     private void loadCustomerList() {
-        List<Customer> customers = mw.getFlightBookingSystem().getCustomers();
         StringBuilder sb = new StringBuilder();
-        if (customers.isEmpty()) {
+        if (mw.getFlightBookingSystem().getCustomerCount() == 0) {
             sb.append("No customers found.\n");
         } else {
-            for (Customer customer : customers) {
+            mw.getFlightBookingSystem().forEachCustomer(customer ->
                 sb.append("ID: ").append(customer.getId())
                   .append(", Name: ").append(customer.getName())
                   .append(", Phone: ").append(customer.getPhone())
                   .append(", Email: ").append(customer.getEmail())
-                  .append("\n");
-            }
+                  .append("\n"));
         }
         customerListArea.setText(sb.toString());
     }
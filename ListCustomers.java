@@ -1,9 +1,7 @@
 package bcu.cmp5332.bookingsystem.commands;
 
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
-import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
-import java.util.List;
 
 /**
  * The {@code ListCustomers} command retrieves and displays a list of all customers
@@ -20,18 +18,14 @@ public class ListCustomers implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        // Get the list of customers from the FlightBookingSystem
-        List<Customer> customers = flightBookingSystem.getCustomers();
-
         // Check if there are any customers
-        if (customers.isEmpty()) {
+        int count = flightBookingSystem.getCustomerCount();
+        if (count == 0) {
             System.out.println("No customers found.");
         } else {
-            // Print details of each customer
-            for (Customer customer : customers) {
-                System.out.println(customer.getDetailsShort());
-            }
-            System.out.println(customers.size() + " customer(s) found.");
+            // Print details of each customer without copying the list
+            flightBookingSystem.forEachCustomer(customer -> System.out.println(customer.getDetailsShort()));
+            System.out.println(count + " customer(s) found.");
         }
     }
 }
@@ -6,7 +6,6 @@ import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * The {@code ListFlights} command retrieves and displays a list of upcoming flights
@@ -17,8 +16,8 @@ public class ListFlights implements Command {
 
     /**
      * Executes the command to list upcoming flights.
-     * Filters flights that have a departure date after the system's current date.
-     * The flights are displayed in order of departure date.
+     * Reads flights that have a departure date after the system's current date from
+     * the departure ordered index, so they are displayed in order of departure date.
      *
      * @param flightBookingSystem The flight booking system instance.
      * @throws FlightBookingSystemException If an error occurs while retrieving flights.
@@ -28,12 +27,8 @@ public class ListFlights implements Command {
         // Get the current system date
         LocalDate systemDate = flightBookingSystem.getSystemDate();
 
-        // Filter only future flights (flights that haven't departed) and sort by departure date
-        List<Flight> futureFlights = flightBookingSystem.getFlights()
-            .stream()
-            .filter(flight -> flight.getDepartureDate().isAfter(systemDate)) // Ensures only upcoming flights
-            .sorted((f1, f2) -> f1.getDepartureDate().compareTo(f2.getDepartureDate())) // Sort by departure date
-            .collect(Collectors.toList());
+        // Only future flights (flights that haven't departed), already in order of departure date
+        List<Flight> futureFlights = flightBookingSystem.upcomingFlights(systemDate, Integer.MAX_VALUE);
 
         // Display the filtered flights
         if (futureFlights.isEmpty()) {
@@ -43,7 +38,7 @@ public class ListFlights implements Command {
             for (Flight flight : futureFlights) {
                 System.out.println("--------------------------------------------------");
                 System.out.println(flight.getDetailsShort());
-                System.out.println("Passengers: " + flight.getPassengers().size() + "/" + flight.getCapacity());
+                System.out.println("Passengers: " + flight.getPassengerCount() + "/" + flight.getCapacity());
             }
             System.out.println("--------------------------------------------------");
             System.out.println(futureFlights.size() + " upcoming flight(s) listed.");
@@ -1,10 +1,15 @@
 package bcu.cmp5332.bookingsystem.main;
 
+import bcu.cmp5332.bookingsystem.data.Checkpointer;
+import bcu.cmp5332.bookingsystem.data.FlightArchive;
 import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.data.WriteBehindPersister;
 import bcu.cmp5332.bookingsystem.commands.Command;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
 import java.io.*;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@code Main} class serves as the entry point for the Flight Booking System.
@@ -12,6 +17,12 @@ import java.io.*;
  */
 public class Main {
 
+    private static final long CHECKPOINT_INTERVAL_SECONDS = 60; // How often the booking journal is compacted
+    private static final long WRITE_BEHIND_DELAY_MILLIS = 500; // The longest a change waits to be saved
+    // Departed flights are only archived by the archive command unless this is set to "daily"
+    private static final boolean ARCHIVE_DAILY =
+            "daily".equalsIgnoreCase(System.getProperty("bookingsystem.archive", "manual"));
+
     /**
      * The main method initializes the flight booking system, processes user input commands,
      * and manages the execution of commands until the user exits.
@@ -24,6 +35,18 @@ public class Main {
         
         // Load the flight booking system data
         FlightBookingSystem fbs = FlightBookingSystemData.load();
+        for (String warning : FlightBookingSystemData.getLoadWarnings()) {
+            System.out.println(warning);
+        }
+
+        // Keep the booking journal short in the background
+        Checkpointer checkpointer = new Checkpointer(CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS,
+                message -> System.out.println(message));
+        checkpointer.start();
+
+        // Save changes to flights and customers in the background
+        WriteBehindPersister persister = new WriteBehindPersister(fbs, WRITE_BEHIND_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        persister.start();
 
         // Create a BufferedReader for user input
         BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
@@ -33,7 +56,14 @@ public class Main {
         System.out.println("Enter 'help' to see a list of available commands.");
 
         // Command processing loop
+        LocalDate lastArchived = null;
         while (true) {
+            // Move departed flights to the archive once a day, between commands
+            if (ARCHIVE_DAILY && !fbs.getSystemDate().equals(lastArchived)) {
+                lastArchived = fbs.getSystemDate();
+                archiveDeparted(fbs);
+            }
+
             System.out.print("> ");
             String line = br.readLine();
             
@@ -53,9 +83,25 @@ public class Main {
         }
 
         // Save flight booking system data before exiting
+        persister.shutdown();
+        checkpointer.shutdown();
         FlightBookingSystemData.store(fbs);
         
         // Terminate the program
         System.exit(0);
     }
+
+    /**
+     * Archives departed flights, reporting a failure without stopping the program.
+     * The flights stay in the system and are tried again the next day.
+     *
+     * @param fbs The flight booking system to archive flights from.
+     */
+    private static void archiveDeparted(FlightBookingSystem fbs) {
+        try {
+            new FlightArchive().archiveDeparted(fbs);
+        } catch (IOException | FlightBookingSystemException ex) {
+            System.out.println("Archiving departed flights failed: " + ex.getMessage());
+        }
+    }
 }
@@ -2,7 +2,6 @@ package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
-import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 import bcu.cmp5332.bookingsystem.model.User;
@@ -11,6 +10,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.swing.*;
@@ -190,18 +190,33 @@ public class MainWindow extends JFrame implements ActionListener {
 
         // Refresh flight list when booking-related actions occur
         if (ae.getSource() == bookingsIssue || ae.getSource() == bookingsCancel || ae.getSource() == bookingsUpdate) {
-            displayFlights(fbs.getFlights());
+            displayFlights();
             displayCustomers(); // Ensure customer details also update
         }
     }
 
+    /**
+     * Displays every upcoming flight in order of departure.
+     */
+    public void displayFlights() {
+        showFlights(fbs.upcomingFlights(fbs.getSystemDate(), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Displays the upcoming flights among the given ones, such as search results.
+     *
+     * @param flightsList The flights to display if they have not departed.
+     */
     public void displayFlights(List<Flight> flightsList) {
         LocalDate systemDate = fbs.getSystemDate();
 
         List<Flight> futureFlights = flightsList.stream()
             .filter(flight -> flight.getDepartureDate().isAfter(systemDate))
             .collect(Collectors.toList());
+        showFlights(futureFlights);
+    }
 
+    private void showFlights(List<Flight> futureFlights) {
         String[] columns = new String[]{"Flight No", "Origin", "Destination", "Departure Date", "Price ($)", "Capacity", "Booked Seats"};
 
         Object[][] data = new Object[futureFlights.size()][7];
@@ -213,7 +228,7 @@ public class MainWindow extends JFrame implements ActionListener {
             data[i][3] = flight.getDepartureDate();
             data[i][4] = flight.getPrice();
             data[i][5] = flight.getCapacity();
-            data[i][6] = flight.getPassengers().size();
+            data[i][6] = flight.getPassengerCount();
         }
 
         JTable table = new JTable(data, columns);
@@ -223,19 +238,12 @@ public class MainWindow extends JFrame implements ActionListener {
     }
 
     public void displayCustomers() {
-        List<Customer> customersList = fbs.getCustomers();
-
         String[] columns = new String[]{"ID", "Name", "Phone", "Email", "Number of Bookings"};
-        Object[][] data = new Object[customersList.size()][5];
-
-        for (int i = 0; i < customersList.size(); i++) {
-            Customer customer = customersList.get(i);
-            data[i][0] = customer.getId();
-            data[i][1] = customer.getName();
-            data[i][2] = customer.getPhone();
-            data[i][3] = customer.getEmail();
-            data[i][4] = customer.getBookings().size();
-        }
+        List<Object[]> rows = new ArrayList<>(fbs.getCustomerCount());
+        fbs.forEachCustomer(customer -> rows.add(new Object[]{
+            customer.getId(), customer.getName(), customer.getPhone(), customer.getEmail(), customer.getBookingCount()
+        }));
+        Object[][] data = rows.toArray(new Object[0][]);
 
         JTable table = new JTable(data, columns);
         this.getContentPane().removeAll();
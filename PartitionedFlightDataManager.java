@@ -0,0 +1,311 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Manages flight data split into one "::" separated file per departure month,
+ * such as {@code flights-2025-06.txt}, kept in a directory of its own.
+ * <p>
+ * Only the partitions for the current month and later are loaded at startup.
+ * An index file maps every flight ID to its month, so a departed flight is faulted
+ * in with the rest of its month the first time {@code getFlightByID} asks for it,
+ * and {@code getAllFlights} loads every remaining month for historical queries.
+ * Storing a change only rewrites the partitions of the months it touched.
+ * <p>
+ * Until the directory has been written for the first time, flights are loaded
+ * from the flat flights file and the first store writes every partition.
+ */
+public class PartitionedFlightDataManager implements DataManager {
+
+    private static final String PREFIX = "flights-";
+    private static final String SUFFIX = ".txt";
+    private static final String INDEX = "flights.index";
+    private static final String SEPARATOR = "::";
+
+    private final Path directory;
+
+    /**
+     * Creates a data manager that keeps its partitions in the given directory.
+     *
+     * @param directory The directory holding the partitions and their index.
+     */
+    public PartitionedFlightDataManager(String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Loads the flights of the current and later months, and makes the system load
+     * the others on demand.
+     *
+     * @param fbs The flight booking system to populate.
+     * @throws IOException If an error occurs while reading the files.
+     * @throws FlightBookingSystemException If the data is in an invalid format.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        GenerationCommit.removeLeftovers(directory);
+        if (!Files.exists(directory.resolve(INDEX))) {
+            new FlightDataManager().loadData(fbs); // Not partitioned yet
+            return;
+        }
+
+        Partitions partitions = new Partitions(readIndex());
+        YearMonth current = YearMonth.from(fbs.getSystemDate());
+        for (YearMonth month : partitions.months()) {
+            if (!month.isBefore(current)) {
+                partitions.loadMonth(fbs, month);
+            }
+        }
+        fbs.setFlightSource(partitions);
+    }
+
+    /**
+     * Writes every partition and the index, loading any month that is not loaded yet first.
+     *
+     * @param fbs The flight booking system containing the flight data.
+     * @throws IOException If an error occurs while writing the files.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        stage(fbs, null, commit);
+        commit.commit();
+    }
+
+    /**
+     * Adds the partitions of the months touched by the given flights, and the index,
+     * to a generation that is committed along with other files.
+     *
+     * @param fbs The flight booking system containing the flight data.
+     * @param changedIds The IDs of the flights that were added, changed or removed,
+     *        or null to write every partition.
+     * @param commit The generation to add the files to.
+     * @throws IOException If a partition that needs to be rewritten cannot be loaded.
+     */
+    void stage(FlightBookingSystem fbs, Collection<Integer> changedIds, GenerationCommit commit) throws IOException {
+        Files.createDirectories(directory);
+        Partitions partitions = fbs.getFlightSource() instanceof Partitions
+                ? (Partitions) fbs.getFlightSource()
+                : null;
+        if (partitions == null) {
+            // Everything was loaded from the flat file, so every month is written out
+            partitions = new Partitions(new HashMap<>());
+            changedIds = null;
+        }
+
+        try {
+            if (changedIds == null) {
+                partitions.loadAllFlights(fbs);
+            }
+        } catch (FlightBookingSystemException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+
+        Map<YearMonth, List<Flight>> byMonth = new HashMap<>();
+        Set<Integer> loadedIds = new HashSet<>();
+        for (Flight flight : fbs.getFlights()) {
+            byMonth.computeIfAbsent(YearMonth.from(flight.getDepartureDate()), m -> new ArrayList<>()).add(flight);
+            loadedIds.add(flight.getId());
+        }
+
+        Set<YearMonth> touched = new TreeSet<>();
+        Map<Integer, YearMonth> index;
+        synchronized (partitions) {
+            if (changedIds == null) {
+                touched.addAll(partitions.index.values()); // Months that may have become empty
+                touched.addAll(byMonth.keySet());
+            } else {
+                for (int id : changedIds) {
+                    YearMonth previous = partitions.index.get(id);
+                    if (previous != null) {
+                        touched.add(previous);
+                    }
+                }
+                for (Map.Entry<YearMonth, List<Flight>> month : byMonth.entrySet()) {
+                    for (Flight flight : month.getValue()) {
+                        if (changedIds.contains(flight.getId())) {
+                            touched.add(month.getKey());
+                        }
+                    }
+                }
+            }
+            for (YearMonth month : touched) {
+                partitions.loaded.add(month); // Written out in full below
+            }
+            for (Map.Entry<YearMonth, List<Flight>> month : byMonth.entrySet()) {
+                for (Flight flight : month.getValue()) {
+                    partitions.index.put(flight.getId(), month.getKey());
+                }
+            }
+
+            // A removed flight keeps its entry in memory, so a retried store still finds its month
+            index = new HashMap<>();
+            for (Map.Entry<Integer, YearMonth> entry : partitions.index.entrySet()) {
+                if (!partitions.loaded.contains(entry.getValue()) || loadedIds.contains(entry.getKey())) {
+                    index.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (partitions != fbs.getFlightSource()) {
+            fbs.setFlightSource(partitions);
+        }
+
+        for (YearMonth month : touched) {
+            List<Flight> flights = byMonth.getOrDefault(month, new ArrayList<>());
+            commit.add(partitionPath(month).toString(), path -> writeFlights(flights, path));
+        }
+        commit.add(directory.resolve(INDEX).toString(), path -> writeIndex(index, path));
+    }
+
+    private Path partitionPath(YearMonth month) {
+        return directory.resolve(PREFIX + month + SUFFIX);
+    }
+
+    private Map<Integer, YearMonth> readIndex() throws IOException, FlightBookingSystemException {
+        Map<Integer, YearMonth> index = new HashMap<>();
+        int line_idx = 0;
+        for (String line : Files.readAllLines(directory.resolve(INDEX))) {
+            line_idx++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] properties = line.split(SEPARATOR, -1);
+            try {
+                index.put(Integer.parseInt(properties[0]), YearMonth.parse(properties[1]));
+            } catch (NumberFormatException | DateTimeParseException | ArrayIndexOutOfBoundsException ex) {
+                throw new FlightBookingSystemException("Invalid flight index entry on line " + line_idx
+                        + " of " + directory.resolve(INDEX));
+            }
+        }
+        return index;
+    }
+
+    private static void writeFlights(List<Flight> flights, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path.toFile()))) {
+            for (Flight flight : flights) {
+                out.print(flight.getId() + SEPARATOR);
+                out.print(flight.getFlightNumber() + SEPARATOR);
+                out.print(flight.getOrigin() + SEPARATOR);
+                out.print(flight.getDestination() + SEPARATOR);
+                out.print(flight.getDepartureDate() + SEPARATOR);
+                out.print(flight.getCapacity() + SEPARATOR);
+                out.print(flight.getPrice() + SEPARATOR);
+                out.println();
+            }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + path);
+            }
+        }
+    }
+
+    private static void writeIndex(Map<Integer, YearMonth> index, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path.toFile()))) {
+            for (Map.Entry<Integer, YearMonth> entry : index.entrySet()) {
+                out.println(entry.getKey() + SEPARATOR + entry.getValue() + SEPARATOR);
+            }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + path);
+            }
+        }
+    }
+
+    /**
+     * Tracks which months of one flight booking system are loaded, and loads the
+     * others when the system asks for them.
+     */
+    final class Partitions implements FlightBookingSystem.FlightSource {
+
+        private final Map<Integer, YearMonth> index;
+        private final Set<YearMonth> loaded = new HashSet<>();
+
+        private Partitions(Map<Integer, YearMonth> index) {
+            this.index = index;
+        }
+
+        @Override
+        public void loadFlight(FlightBookingSystem fbs, int id) throws FlightBookingSystemException {
+            YearMonth month;
+            synchronized (this) {
+                month = index.get(id);
+            }
+            if (month != null) {
+                loadMonth(fbs, month);
+            }
+        }
+
+        @Override
+        public void loadFlightsOn(FlightBookingSystem fbs, LocalDate date) throws FlightBookingSystemException {
+            loadMonth(fbs, YearMonth.from(date));
+        }
+
+        @Override
+        public void loadFlightsBefore(FlightBookingSystem fbs, LocalDate date) throws FlightBookingSystemException {
+            for (YearMonth month : months()) {
+                if (month.atDay(1).isBefore(date)) {
+                    loadMonth(fbs, month); // Only older months, since later ones are loaded at startup
+                }
+            }
+        }
+
+        @Override
+        public void loadAllFlights(FlightBookingSystem fbs) throws FlightBookingSystemException {
+            for (YearMonth month : months()) {
+                loadMonth(fbs, month);
+            }
+        }
+
+        @Override
+        public synchronized int getHighestFlightId() {
+            int highest = 0;
+            for (int id : index.keySet()) {
+                highest = Math.max(highest, id);
+            }
+            return highest;
+        }
+
+        private synchronized Set<YearMonth> months() {
+            return new TreeSet<>(index.values());
+        }
+
+        /**
+         * Loads every flight of a month unless the month is already loaded.
+         */
+        private synchronized void loadMonth(FlightBookingSystem fbs, YearMonth month)
+                throws FlightBookingSystemException {
+            if (loaded.contains(month)) {
+                return;
+            }
+            Path partition = partitionPath(month);
+            if (Files.exists(partition)) {
+                try {
+                    List<Flight> flights = new ChunkedFileParser<>(FlightDataManager::parseFlight)
+                            .parse(partition.toString());
+                    fbs.addLoadedFlights(flights);
+                } catch (IOException ex) {
+                    throw new FlightBookingSystemException("Unable to load the flights of " + month + ": "
+                            + ex.getMessage());
+                }
+            }
+            loaded.add(month);
+        }
+    }
+}
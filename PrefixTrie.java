@@ -0,0 +1,114 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the items stored under keys that start with a given prefix, in time that
+ * depends on the prefix and the number of items returned rather than on the
+ * number of items stored.
+ * <p>
+ * The trie is not synchronized; {@link FlightBookingSystem} only uses it under the
+ * lock of the data it indexes.
+ *
+ * @param <T> The type of item stored.
+ */
+final class PrefixTrie<T> {
+
+    private static final class Node<T> {
+        private Map<Character, Node<T>> children; // Created for the first child
+        private List<T> items; // Created for the first item
+
+        private boolean isEmpty() {
+            return (children == null || children.isEmpty()) && (items == null || items.isEmpty());
+        }
+    }
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Stores an item under a key.
+     *
+     * @param key The key.
+     * @param item The item.
+     */
+    void add(String key, T item) {
+        Node<T> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            if (node.children == null) {
+                node.children = new HashMap<>();
+            }
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node<>());
+        }
+        if (node.items == null) {
+            node.items = new ArrayList<>(1);
+        }
+        node.items.add(item);
+    }
+
+    /**
+     * Removes an item stored under a key, and any nodes left without items below them.
+     *
+     * @param key The key the item was stored under.
+     * @param item The item.
+     */
+    void remove(String key, T item) {
+        Deque<Node<T>> path = new ArrayDeque<>();
+        Node<T> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            path.push(node);
+            node = node.children != null ? node.children.get(key.charAt(i)) : null;
+            if (node == null) {
+                return;
+            }
+        }
+        if (node.items == null || !node.items.remove(item)) {
+            return;
+        }
+        for (int i = key.length() - 1; i >= 0 && node.isEmpty(); i--) {
+            node = path.pop();
+            node.children.remove(key.charAt(i));
+        }
+    }
+
+    /**
+     * Finds the items stored under keys that start with a prefix, shortest keys first.
+     * An item stored under more than one matching key is returned once.
+     *
+     * @param prefix The prefix.
+     * @param limit The most items to return.
+     * @return The items found.
+     */
+    List<T> find(String prefix, int limit) {
+        Node<T> node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children != null ? node.children.get(prefix.charAt(i)) : null;
+        }
+        Set<T> found = new LinkedHashSet<>();
+        Deque<Node<T>> queue = new ArrayDeque<>();
+        if (node != null) {
+            queue.add(node);
+        }
+        while (!queue.isEmpty() && found.size() < limit) {
+            node = queue.poll();
+            if (node.items != null) {
+                for (T item : node.items) {
+                    if (found.size() >= limit) {
+                        break;
+                    }
+                    found.add(item);
+                }
+            }
+            if (node.children != null) {
+                queue.addAll(node.children.values());
+            }
+        }
+        return new ArrayList<>(found);
+    }
+}
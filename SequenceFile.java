@@ -0,0 +1,82 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * A file holding the highest ID ever allocated to one kind of record, so the IDs
+ * of deleted records are not handed out again after a restart. The stored value
+ * never goes backwards, since the records still in memory may not include the one
+ * with the highest ID.
+ */
+final class SequenceFile {
+
+    private final String resource;
+    private final String name;
+
+    /**
+     * Creates a sequence file.
+     *
+     * @param resource The path of the file.
+     * @param name The kind of record it numbers, for error messages.
+     */
+    SequenceFile(String resource, String name) {
+        this.resource = resource;
+        this.name = name;
+    }
+
+    /**
+     * Reads the highest ID recorded.
+     *
+     * @return The highest ID, or 0 if the file does not exist.
+     * @throws IOException If the file cannot be read.
+     * @throws FlightBookingSystemException If the file does not hold a number.
+     */
+    int read() throws IOException, FlightBookingSystemException {
+        Path path = Paths.get(resource);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        String value = new String(Files.readAllBytes(path)).trim();
+        try {
+            return value.isEmpty() ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new FlightBookingSystemException("Invalid " + name + " sequence in " + resource);
+        }
+    }
+
+    /**
+     * Adds the file to a generation, recording the given ID unless a higher one is
+     * already recorded.
+     *
+     * @param highest The highest ID allocated so far.
+     * @param commit The generation to add the file to.
+     * @throws IOException If the file cannot be read.
+     */
+    void stage(int highest, GenerationCommit commit) throws IOException {
+        int sequence;
+        try {
+            sequence = Math.max(read(), highest);
+        } catch (FlightBookingSystemException ex) {
+            sequence = highest; // An unreadable sequence is rewritten from the loaded IDs
+        }
+        String value = String.valueOf(sequence);
+        commit.add(resource, path -> Files.write(path, List.of(value)));
+    }
+
+    /**
+     * Writes the file on its own, for storage that keeps the records elsewhere.
+     *
+     * @param highest The highest ID allocated so far.
+     * @throws IOException If the file cannot be written.
+     */
+    void write(int highest) throws IOException {
+        GenerationCommit commit = new GenerationCommit();
+        stage(highest, commit);
+        commit.commit();
+    }
+}
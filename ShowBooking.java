@@ -0,0 +1,39 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+/**
+ * The {@code ShowBooking} command displays detailed information about a specific booking.
+ * The booking is identified using its unique ID.
+ */
+public class ShowBooking implements Command {
+
+    private final int bookingId;
+
+    /**
+     * Creates a command to display details of a booking with the specified ID.
+     *
+     * @param bookingId The ID of the booking to be displayed.
+     */
+    public ShowBooking(int bookingId) {
+        this.bookingId = bookingId;
+    }
+
+    /**
+     * Executes the show booking command.
+     * Retrieves and prints the details of the specified booking.
+     *
+     * @param flightBookingSystem The flight booking system instance.
+     * @throws FlightBookingSystemException If the booking does not exist.
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        // Get the booking by its ID
+        Booking booking = flightBookingSystem.getBookingByID(bookingId);
+
+        // Print the booking details
+        System.out.println(booking.getDetails());
+    }
+}
@@ -1,12 +1,18 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightArchive;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * The {@code ShowCustomer} command displays detailed information about a specific customer.
- * The customer is identified using their unique ID.
+ * The customer is identified using their unique ID. Past bookings that have been
+ * archived are listed after the current ones.
  */
 public class ShowCustomer implements Command {
 
@@ -40,5 +46,19 @@ public class ShowCustomer implements Command {
 
         // Print detailed customer information
         System.out.println(customer.getDetailsLong());
+
+        // Print bookings whose flights have been archived
+        List<Booking> archived;
+        try {
+            archived = new FlightArchive().findBookings(customer);
+        } catch (IOException ex) {
+            throw new FlightBookingSystemException("Failed to read the archive: " + ex.getMessage());
+        }
+        if (!archived.isEmpty()) {
+            System.out.println("Archived Bookings:");
+            for (Booking booking : archived) {
+                System.out.println("- " + booking.getDetails());
+            }
+        }
     }
 }
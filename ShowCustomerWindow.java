@@ -29,7 +29,7 @@ public class ShowCustomerWindow extends JFrame {
             details.append("\n--- Bookings ---\n");
 
             // Iterate through customer's bookings and display both flights
-            for (Booking booking : customer.getBookings()) {
+            for (Booking booking : customer.getBookingsView()) {
                 Flight outboundFlight = booking.getOutboundFlight();
                 Flight returnFlight = booking.getReturnFlight();
 
@@ -1,12 +1,16 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightArchive;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
+import java.io.IOException;
+
 /**
  * The {@code ShowFlight} command displays detailed information about a specific flight.
- * The flight is identified using its unique ID.
+ * The flight is identified using its unique ID, and is looked up in the archive
+ * when it is no longer in the system.
  */
 public class ShowFlight implements Command {
 
@@ -30,8 +34,15 @@ public class ShowFlight implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        // Get the flight by its ID
-        Flight flight = flightBookingSystem.getFlightByID(flightId);
+        // Get the flight by its ID, falling back to the archive for departed flights
+        Flight flight;
+        boolean archived = false;
+        try {
+            flight = flightBookingSystem.getFlightByID(flightId);
+        } catch (FlightBookingSystemException ex) {
+            flight = findArchivedFlight(flightBookingSystem);
+            archived = true;
+        }
 
         // Check if the flight exists
         if (flight == null) {
@@ -40,5 +51,19 @@ public class ShowFlight implements Command {
 
         // Print detailed flight information
         System.out.println(flight.getDetailsLong());
+        if (archived) {
+            System.out.println("This flight has been archived.");
+        }
+    }
+
+    /**
+     * Looks the flight up in the archive.
+     */
+    private Flight findArchivedFlight(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        try {
+            return new FlightArchive().findFlight(flightBookingSystem, flightId);
+        } catch (IOException ex) {
+            throw new FlightBookingSystemException("Failed to read the archive: " + ex.getMessage());
+        }
     }
 }
@@ -0,0 +1,79 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import java.io.IOException;
+
+/**
+ * Converts between the "::" separated text files and the binary snapshot.
+ * <p>
+ * Run with {@code to-binary} to take a snapshot of the text files, or with
+ * {@code to-text} to rewrite the text files from the snapshot. Either way the
+ * booking journal is folded in, so both formats end up holding the same data.
+ * Run with {@code to-jdbc <url>} to copy the text files into an embedded database
+ * for use with {@code -Dbookingsystem.storage=jdbc}.
+ */
+public class SnapshotConverter {
+
+    /**
+     * Runs the conversion named by the first argument.
+     *
+     * @param args {@code to-binary}, {@code to-text} or {@code to-jdbc} followed by a JDBC URL.
+     * @throws IOException If the files cannot be read or written.
+     * @throws FlightBookingSystemException If the source data is invalid.
+     */
+    public static void main(String[] args) throws IOException, FlightBookingSystemException {
+        if (args.length == 1 && args[0].equals("to-binary")) {
+            toBinary();
+            System.out.println("Binary snapshot written.");
+        } else if (args.length == 1 && args[0].equals("to-text")) {
+            toText();
+            System.out.println("Text files written from the binary snapshot.");
+        } else if (args.length == 2 && args[0].equals("to-jdbc")) {
+            toJdbc(args[1]);
+            System.out.println("Text files copied to " + args[1]);
+        } else {
+            System.out.println("Usage: SnapshotConverter to-binary|to-text|to-jdbc <url>");
+        }
+    }
+
+    /**
+     * Loads the text files and writes them back, together with a binary snapshot
+     * of the same data.
+     *
+     * @throws IOException If the files cannot be read or written.
+     * @throws FlightBookingSystemException If the text files are invalid.
+     */
+    public static void toBinary() throws IOException, FlightBookingSystemException {
+        FlightBookingSystem fbs = FlightBookingSystemData.loadText();
+        FlightBookingSystemData.storeText(fbs); // Folds the journal in before the snapshot records the files
+        FlightBookingSystemData.storeSnapshot(fbs);
+    }
+
+    /**
+     * Loads the binary snapshot, even if it is out of date, and writes its data to
+     * the text files.
+     *
+     * @throws IOException If the files cannot be read or written.
+     * @throws FlightBookingSystemException If the snapshot is invalid.
+     */
+    public static void toText() throws IOException, FlightBookingSystemException {
+        FlightBookingSystem fbs = FlightBookingSystemData.loadSnapshot();
+        FlightBookingSystemData.storeText(fbs);
+        FlightBookingSystemData.storeSnapshot(fbs); // Still matches the rewritten text files
+    }
+
+    /**
+     * Loads the text files and writes their data to a database, replacing whatever
+     * it held.
+     *
+     * @param url The JDBC URL of the database.
+     * @throws IOException If the files or the database cannot be read or written.
+     * @throws FlightBookingSystemException If the text files are invalid.
+     */
+    public static void toJdbc(String url) throws IOException, FlightBookingSystemException {
+        FlightBookingSystem fbs = FlightBookingSystemData.loadText();
+        FlightBookingSystemData.storeText(fbs); // Folds the journal in, so it is not replayed on top again
+        new JdbcDataManager(url).storeData(fbs);
+    }
+}
@@ -0,0 +1,112 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the items whose text contains a given substring without looking at every item.
+ * <p>
+ * Every run of three characters in an item's text is a posting key. An item can only
+ * contain a query if it has every three-character run of the query, so the candidates
+ * are the intersection of those postings, starting from the shortest. Candidates
+ * still have to be checked with {@code contains}, and queries shorter than three
+ * characters cannot be answered at all. Matching is case-sensitive, like
+ * {@code String.contains}.
+ * <p>
+ * The index is not synchronized; {@link FlightBookingSystem} only uses it under the
+ * lock of the data it indexes.
+ *
+ * @param <T> The type of item indexed.
+ */
+final class TrigramIndex<T> {
+
+    private final Map<Long, Set<T>> postings = new HashMap<>();
+
+    /**
+     * Indexes an item under its text.
+     *
+     * @param text The text of the item.
+     * @param item The item.
+     */
+    void add(String text, T item) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            postings.computeIfAbsent(trigram(text, i), t -> new HashSet<>()).add(item);
+        }
+    }
+
+    /**
+     * Removes an item that was indexed under the given text.
+     *
+     * @param text The text the item was indexed under.
+     * @param item The item.
+     */
+    void remove(String text, T item) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            Long key = trigram(text, i);
+            Set<T> items = postings.get(key);
+            if (items != null && items.remove(item) && items.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a query is long enough to be answered by {@link #candidates(String)}.
+     *
+     * @param query The substring to search for.
+     * @return True if the query has at least three characters.
+     */
+    static boolean canSearch(String query) {
+        return query.length() >= 3;
+    }
+
+    /**
+     * Gets every item whose text may contain the query, and some that may not.
+     *
+     * @param query The substring to search for, at least three characters long.
+     * @return The candidate items.
+     */
+    List<T> candidates(String query) {
+        List<Set<T>> lists = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        Set<T> smallest = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            Long key = trigram(query, i);
+            if (!seen.add(key)) {
+                continue;
+            }
+            Set<T> items = postings.get(key);
+            if (items == null) {
+                return Collections.emptyList(); // No item has this run of characters
+            }
+            lists.add(items);
+            if (smallest == null || items.size() < smallest.size()) {
+                smallest = items;
+            }
+        }
+
+        List<T> candidates = new ArrayList<>();
+        for (T item : smallest) {
+            boolean inAll = true;
+            for (Set<T> items : lists) {
+                if (items != smallest && !items.contains(item)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) {
+                candidates.add(item);
+            }
+        }
+        return candidates;
+    }
+
+    private static Long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+}
@@ -0,0 +1,126 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem.EntityType;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes changes to flights and customers to disk on a background thread, so
+ * commands return as soon as the system has been changed in memory.
+ * <p>
+ * The persister listens for changes on a {@code FlightBookingSystem}. The first
+ * change after a flush schedules the next flush after a fixed delay, and every
+ * change made in the meantime is written by that same flush, so a burst of
+ * commands costs a single write and no change waits longer than the delay.
+ * Booking changes are already journaled by the commands and are not written here.
+ * <p>
+ * {@link #flush()} waits until everything changed so far is on disk, and
+ * {@link #shutdown()} does the same before stopping the background thread.
+ */
+public class WriteBehindPersister implements FlightBookingSystem.ChangeListener {
+
+    private final FlightBookingSystem fbs;
+    private final long delay;
+    private final TimeUnit unit;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * Creates a persister for the given system. Nothing is written until it is started.
+     *
+     * @param fbs The flight booking system whose changes are written.
+     * @param delay The longest time a change waits before it is written.
+     * @param unit The unit of the delay.
+     */
+    public WriteBehindPersister(FlightBookingSystem fbs, long delay, TimeUnit unit) {
+        this.fbs = fbs;
+        this.delay = delay;
+        this.unit = unit;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "write-behind-persister");
+            thread.setDaemon(true); // Never keeps the application alive on its own
+            return thread;
+        });
+    }
+
+    /**
+     * Starts listening for changes.
+     */
+    public void start() {
+        fbs.addChangeListener(this);
+    }
+
+    /**
+     * Schedules a flush for a change, unless one is already waiting to run.
+     *
+     * @param type The kind of data that changed.
+     */
+    @Override
+    public void dataChanged(EntityType type) {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::runFlush, delay, unit);
+            } catch (RejectedExecutionException ex) {
+                flushScheduled.set(false); // Shut down; whoever stopped it stores what is left
+            }
+        }
+    }
+
+    /**
+     * Writes every change made so far and waits until it is on disk.
+     *
+     * @throws IOException If the changes cannot be written.
+     */
+    public void flush() throws IOException {
+        Future<?> flush = scheduler.submit(() -> {
+            FlightBookingSystemData.storeChanges(fbs);
+            return null;
+        });
+        try {
+            flush.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for changes to be written", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Stops listening for changes, writes whatever is still waiting and stops the
+     * background thread.
+     *
+     * @throws IOException If the remaining changes cannot be written.
+     */
+    public void shutdown() throws IOException {
+        fbs.removeChangeListener(this);
+        try {
+            flush();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Runs a scheduled flush. A failed flush leaves the changes marked dirty, so
+     * they are tried again with the next change and by the final store on exit.
+     */
+    private void runFlush() {
+        flushScheduled.set(false); // Changes from here on need another flush
+        try {
+            FlightBookingSystemData.storeChanges(fbs);
+        } catch (IOException ex) {
+            System.err.println("Saving changes failed: " + ex.getMessage());
+        }
+    }
+}